@@ -0,0 +1,34 @@
+package benchmarks;
+
+import math.BallisticSolver;
+import math.EulerIntegrator;
+import math.Integrand;
+import math.Interpolator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**Serial shooting solves of the default problem*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BallisticBenchmark {
+    @Param({"50", "200", "800"})
+    private int steps;
+    
+    private Integrand integrand;
+    
+    @Setup
+    public void setUp() {
+        integrand = Problems.integrand();
+    }
+    
+    @Benchmark
+    public List<Interpolator> solve() {
+        return new BallisticSolver(new EulerIntegrator(steps), null, 0).solve(integrand, Problems.START, Problems.END);
+    }
+}
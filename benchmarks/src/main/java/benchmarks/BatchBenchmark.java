@@ -0,0 +1,53 @@
+package benchmarks;
+
+import math.BatchSolver;
+import math.BoundaryProblem;
+import math.DirectSolver;
+import math.Interpolator;
+import math.PointDouble;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**Batches of direct solves with different end points, problems per second should grow with the workers up to the core count*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+    private static final int PROBLEMS = 256;
+    
+    @Param({"1", "2", "4", "8"})
+    private int workers;
+    
+    private ExecutorService executor;
+    private BatchSolver batch;
+    private List<BoundaryProblem> problems;
+    
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(workers);
+        batch = new BatchSolver(() -> new DirectSolver(50, DirectSolver.Method.NEWTON), Problems.integrand(), executor);
+        problems = new ArrayList<>(PROBLEMS);
+        for (int i = 0; i < PROBLEMS; i++) {
+            problems.add(new BoundaryProblem(Problems.START, new PointDouble(Problems.END.getX(), Problems.END.getY() + i / (double) PROBLEMS)));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(PROBLEMS)
+    public List<List<Interpolator>> solve() throws InterruptedException {
+        return batch.solve(problems);
+    }
+}
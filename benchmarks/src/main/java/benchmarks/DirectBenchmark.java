@@ -0,0 +1,38 @@
+package benchmarks;
+
+import math.DirectSolver;
+import math.Integrand;
+import math.Interpolator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**Multilevel direct solves of the default problem, the way MainWindow runs them*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirectBenchmark {
+    @Param({"50", "200", "800"})
+    private int steps;
+    
+    @Param({"GAUSS_SEIDEL", "NEWTON", "LBFGS"})
+    private DirectSolver.Method method;
+    
+    private Integrand integrand;
+    
+    @Setup
+    public void setUp() {
+        integrand = Problems.integrand();
+    }
+    
+    @Benchmark
+    public List<Interpolator> solve() {
+        DirectSolver solver = new DirectSolver(steps, method);
+        solver.setMultilevel(true);
+        return solver.solve(integrand, Problems.START, Problems.END);
+    }
+}
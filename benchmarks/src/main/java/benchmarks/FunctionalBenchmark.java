@@ -0,0 +1,49 @@
+package benchmarks;
+
+import math.ChainGradientSolver;
+import math.DiscreteFunctional;
+import math.GaussSeidelSolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**Single level minimization of the discretized functional from a fixed random start*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FunctionalBenchmark {
+    @Param({"10", "50", "200"})
+    private int steps;
+    
+    private DiscreteFunctional functional;
+    private double[] start;
+    
+    @Setup
+    public void setUp() {
+        functional = new DiscreteFunctional(Problems.integrand(), Problems.START, Problems.END, steps);
+        Random random = new Random(1);
+        start = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            start[i] = Problems.START.getY() + random.nextDouble();
+        }
+    }
+    
+    @Benchmark
+    public double[] gaussSeidel() {
+        GaussSeidelSolver solver = new GaussSeidelSolver();
+        solver.setFunction(functional);
+        solver.setIncremental(functional);
+        return solver.solve(start);
+    }
+    
+    @Benchmark
+    public double[] chainGradient() {
+        ChainGradientSolver solver = new ChainGradientSolver();
+        solver.setFunction(functional);
+        return solver.solve(start);
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import graphics.GraphDisplay;
+import math.GridInterpolator;
+import math.Interpolator;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**Painting shooting probes into an offscreen image, without a display*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GraphDisplayBenchmark {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+    private static final int NODES = 201;
+    
+    @Param({"1", "100", "1000"})
+    private int graphs;
+    
+    private final GraphDisplay display = new GraphDisplay();
+    private final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private Graphics2D graphics;
+    private List<Interpolator> interpolators;
+    private boolean wide;
+    
+    @Setup
+    public void setUp() {
+        interpolators = new ArrayList<>(graphs);
+        for (int k = 0; k < graphs; k++) {
+            double[] values = new double[NODES];
+            for (int i = 0; i < NODES; i++) {
+                values[i] = Math.sin(i * 0.002 * (k + 1)) * (k + 1) / graphs;
+            }
+            interpolators.add(new GridInterpolator(0, 1, values));
+        }
+        display.setSize(WIDTH, HEIGHT);
+        display.setMinY(-1);
+        display.setMaxY(1);
+        display.setInterpolators(interpolators);
+        display.setInterpolatorsHighligthed(Collections.singletonList(interpolators.get(graphs - 1)));
+        graphics = image.createGraphics();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+    
+    /**Nothing changed since the last paint*/
+    @Benchmark
+    public BufferedImage repaint() {
+        display.paint(graphics);
+        return image;
+    }
+    
+    /**New data in the same view, as during progress updates*/
+    @Benchmark
+    public BufferedImage update() {
+        display.setInterpolators(interpolators);
+        display.paint(graphics);
+        return image;
+    }
+    
+    /**Every paint in a new view, so all polylines are traced again*/
+    @Benchmark
+    public BufferedImage resize() {
+        wide = !wide;
+        display.setSize(wide ? WIDTH : WIDTH - 1, HEIGHT);
+        display.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import math.GridInterpolator;
+import math.LinearInterpolator;
+import math.PointDouble;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**Evaluation at random arguments inside the nodes, per argument*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpolatorBenchmark {
+    private static final int ARGUMENTS = 1024;
+    
+    @Param({"100", "10000", "1000000"})
+    private int nodes;
+    
+    private LinearInterpolator linear;
+    private GridInterpolator grid;
+    private final double[] arguments = new double[ARGUMENTS];
+    private final double[] out = new double[ARGUMENTS];
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        List<PointDouble> points = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            double t = i / (nodes - 1.0);
+            points.add(new PointDouble(t, Math.sin(10 * t)));
+        }
+        linear = new LinearInterpolator(points);
+        grid = new GridInterpolator(points);
+        Random random = new Random(1);
+        for (int i = 0; i < ARGUMENTS; i++) {
+            arguments[i] = random.nextDouble();
+        }
+    }
+    
+    @Benchmark
+    public double linear() {
+        next = (next + 1) % ARGUMENTS;
+        return linear.evaluate(arguments[next]);
+    }
+    
+    @Benchmark
+    public double grid() {
+        next = (next + 1) % ARGUMENTS;
+        return grid.evaluate(arguments[next]);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ARGUMENTS)
+    public double[] gridBatch() {
+        grid.evaluate(arguments, out);
+        return out;
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import math.GoldenRatioSolver;
+import math.PointDouble;
+import math.SolverUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+
+/**1D minimization of a smooth function with its minimum away from the starting points*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineSearchBenchmark {
+    private final DoubleUnaryOperator f = x -> Math.cosh(x - 1.7) + 0.1 * x * x;
+    private final GoldenRatioSolver goldenRatio = new GoldenRatioSolver();
+    
+    @Setup
+    public void setUp() {
+        goldenRatio.setFunction(f);
+    }
+    
+    @Benchmark
+    public PointDouble goldenRatio() {
+        return goldenRatio.solve(-10, 10);
+    }
+    
+    @Benchmark
+    public double findMin() {
+        return SolverUtils.findMinPrimitive(f, 1, 0);
+    }
+}
@@ -0,0 +1,18 @@
+package benchmarks;
+
+import math.ExpressionCompiler;
+import math.Integrand;
+import math.PointDouble;
+
+/**The brachistochrone problem MainWindow starts with*/
+final class Problems {
+    static final String FUNCTION = "f(t, x, z) = (1+z^2)/(2*x)";
+    static final PointDouble START = new PointDouble(0, 0.707);
+    static final PointDouble END = new PointDouble(1, 0.707);
+    
+    private Problems() {}
+    
+    static Integrand integrand() {
+        return ExpressionCompiler.compile(FUNCTION);
+    }
+}
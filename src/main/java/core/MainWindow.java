@@ -2,13 +2,21 @@ package core;
 
 import graphics.GraphDisplay;
 import math.*;
+import metrics.MetricsRegistry;
 import org.mariuszgromada.math.mxparser.Function;
 
+import javax.management.JMException;
 import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.text.DecimalFormat;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class MainWindow {
     private JPanel rootPanel;
@@ -26,9 +34,14 @@ public class MainWindow {
     private JTextField minXField;
     private JTextField maxXField;
     private JTextField stepsField;
+    private JTable nodeTable;
+    private JButton cancelButton;
+    private final TrajectoryTableModel nodes = new TrajectoryTableModel();
     
     public static final String TITLE = "Variational optimization";
+    private static final long REDRAW_INTERVAL = TimeUnit.MILLISECONDS.toNanos(200);
     private Function function;
+    private SolveWorker worker;
     
     private MainWindow() {
         initComponents();
@@ -36,6 +49,20 @@ public class MainWindow {
     
     private void initComponents() {
         calculateButton.addActionListener(e -> calculate());
+        cancelButton.addActionListener(e -> {
+            if (worker != null) {
+                worker.solver.cancel();
+            }
+        });
+        nodeTable.setModel(nodes);
+        DecimalFormat format = new DecimalFormat("0.###");
+        format.setRoundingMode(RoundingMode.HALF_UP);
+        nodeTable.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : format.format(value));
+            }
+        });
     }
     
     
@@ -57,46 +84,77 @@ public class MainWindow {
                 log.append("\nInvalid function syntax!");
                 return;
             }
-            java.util.function.Function<List<Double>, Double> f = l -> function.calculate(l.get(0), l.get(1), l.get(2));
+            String expression = functionField.getText();
+            Integrand compiled = ExpressionCompiler.compile(expression);
+            //mXparser functions keep state while calculating, so the solvers' pool threads each parse their own
+            ThreadLocal<Function> functions = ThreadLocal.withInitial(() -> new Function(expression));
+            Integrand integrand = compiled != null ? compiled : (t, x, z) -> functions.get().calculate(t, x, z);
+            int mode = modeSel.getSelectedIndex();
             VariationalSolver variationalSolver;
-            List<Interpolator> results;
-            Interpolator best;
-            double dt;
-            switch (modeSel.getSelectedIndex()) {
+            switch (mode) {
                 case 0:
-                    variationalSolver = new BallisticSolver();
-                    results = variationalSolver.solve(f, new PointDouble(lX, lY), new PointDouble(uX, uY));
-                    dt = (uX - lX) / (double) BallisticSolver.STEPS;
-                    best = results.get(results.size() - 1);
-                    log.append("\nGenerated");
-                        double z0 = (best.evaluate(best.lower() + dt) - best.evaluate(best.lower())) / dt;
-                    z0 = BigDecimal.valueOf(z0).setScale(3, RoundingMode.HALF_UP).doubleValue();
-                    log.append("\nResult: z0 = " + z0);
-                    for (int i = 0; i <= BallisticSolver.STEPS; i++) {
-                        double x = best.lower() + i * dt;
-                        log.append("\n" + i + ": " + new PointDouble(x, best.evaluate(x)).toString(3));
-                    }
+                    variationalSolver = new BallisticSolver(new DormandPrinceIntegrator(), ForkJoinPool.commonPool());
+                    break;
+                
+                case 1:
+                    variationalSolver = new MultipleShootingSolver();
+                    break;
+                
+                case 2:
+                    variationalSolver = new NewtonShootingSolver();
                     break;
-                    
+                
                 default:
-                    variationalSolver = new DirectSolver(steps);
-                    results = variationalSolver.solve(f, new PointDouble(lX, lY), new PointDouble(uX, uY));
-                    best = results.get(results.size() - 1);
-                    dt = (uX - lX) / (double)(steps + 1.0);
-                    log.append("\nGenerated");
-                    for (int i = 0; i <= steps + 1; i++) {
-                        double x = best.lower() + i * dt;
-                        log.append("\n" + i + ": " + new PointDouble(x, best.evaluate(x)).toString(3));
-                    }
+                    DirectSolver directSolver = new DirectSolver(steps, mode == 4 ? DirectSolver.Method.NEWTON : DirectSolver.Method.GAUSS_SEIDEL);
+                    directSolver.setMultilevel(true);
+                    variationalSolver = directSolver;
             }
-            updateGraph(results);
+            worker = new SolveWorker(mode, variationalSolver, integrand, new PointDouble(lX, lY), new PointDouble(uX, uY), steps);
+            variationalSolver.setListener(worker);
+            calculateButton.setEnabled(false);
+            cancelButton.setEnabled(true);
+            worker.execute();
         }
         catch (NumberFormatException e) {
             log.append("\nInvalid input format");
         }
-        catch (InterpolationException e) {
-            e.printStackTrace();
+    }
+    
+    /**Logs the solution once the solve is done, on the event dispatch thread*/
+    private void report(int mode, VariationalSolver variationalSolver, List<Interpolator> results, int steps) throws InterpolationException {
+        Interpolator best = results.get(results.size() - 1);
+        switch (mode) {
+            case 0:
+                logShooting(best, BallisticSolver.STEPS);
+                break;
+            
+            case 1:
+                logShooting(best, MultipleShootingSolver.SEGMENTS * BallisticSolver.STEPS);
+                break;
+            
+            case 2:
+                NewtonShootingSolver newtonSolver = (NewtonShootingSolver) variationalSolver;
+                log.append("\nIterations: " + newtonSolver.getIterations() + "; Residual: " + newtonSolver.getResidual());
+                logShooting(best, BallisticSolver.STEPS);
+                break;
+            
+            default:
+                log.append("\nGenerated " + (steps + 2) + " nodes");
+                TrajectorySink.sample(best, steps + 1, nodes);
         }
+        if (variationalSolver.getMetrics() != null) {
+            log.append("\nMetrics: " + variationalSolver.getMetrics());
+        }
+        updateGraph(results);
+    }
+    
+    private void logShooting(Interpolator best, int steps) throws InterpolationException {
+        double dt = (best.upper() - best.lower()) / (double) steps;
+        log.append("\nGenerated " + (steps + 1) + " nodes");
+        double z0 = (best.evaluate(best.lower() + dt) - best.evaluate(best.lower())) / dt;
+        z0 = BigDecimal.valueOf(z0).setScale(3, RoundingMode.HALF_UP).doubleValue();
+        log.append("\nResult: z0 = " + z0);
+        TrajectorySink.sample(best, steps, nodes);
     }
     
     private void updateGraph(List<Interpolator> results) {
@@ -108,7 +166,7 @@ public class MainWindow {
             
             graph.setInterpolators(results);
             graph.setInterpolatorsHighligthed(Collections.singletonList(results.get(results.size() - 1)));
-    
+            
             graph.repaint();
         }
         catch (NumberFormatException e) {
@@ -117,7 +175,78 @@ public class MainWindow {
     }
     
     
+    /**Solves off the event dispatch thread, redrawing the current trajectory at most every REDRAW_INTERVAL*/
+    private class SolveWorker extends SwingWorker<List<Interpolator>, ProgressEvent> implements ProgressListener {
+        private final int mode;
+        private final VariationalSolver solver;
+        private final Integrand integrand;
+        private final PointDouble start;
+        private final PointDouble end;
+        private final int steps;
+        private long lastRedraw = System.nanoTime();
+        
+        SolveWorker(int mode, VariationalSolver solver, Integrand integrand, PointDouble start, PointDouble end, int steps) {
+            this.mode = mode;
+            this.solver = solver;
+            this.integrand = integrand;
+            this.start = start;
+            this.end = end;
+            this.steps = steps;
+        }
+        
+        @Override
+        protected List<Interpolator> doInBackground() {
+            return solver.solve(integrand, start, end);
+        }
+        
+        @Override
+        public void progress(ProgressEvent event) {
+            long now = System.nanoTime();
+            if (now - lastRedraw >= REDRAW_INTERVAL) {
+                lastRedraw = now;
+                publish(event);
+            }
+        }
+        
+        @Override
+        protected void process(List<ProgressEvent> events) {
+            ProgressEvent event = events.get(events.size() - 1);
+            log.append("\nIteration " + event.getIteration() + ": value = " + event.getValue() + "; evaluations = " + event.getEvaluations());
+            updateGraph(Collections.singletonList(event.getTrajectory()));
+        }
+        
+        @Override
+        protected void done() {
+            calculateButton.setEnabled(true);
+            cancelButton.setEnabled(false);
+            try {
+                report(mode, solver, get(), steps);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof CancellationException) {
+                    log.append("\nCancelled");
+                }
+                else {
+                    log.append("\nSolver failed: " + e.getCause());
+                }
+            }
+            catch (InterpolationException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    
     public static void main(String[] args) {
+        try {
+            MetricsRegistry.getDefault().register();
+        }
+        catch (JMException e) {
+            e.printStackTrace();
+        }
         JFrame frame = new JFrame(TITLE);
         MainWindow gui = new MainWindow();
         frame.setContentPane(gui.rootPanel);
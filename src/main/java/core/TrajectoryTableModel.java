@@ -0,0 +1,69 @@
+package core;
+
+import math.TrajectorySink;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+
+/**Table of the nodes of the last trajectory, cells are only formatted when the table renders them*/
+public class TrajectoryTableModel extends AbstractTableModel implements TrajectorySink {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"i", "t", "x"};
+    
+    private double[] t = new double[16];
+    private double[] x = new double[16];
+    private int size;
+    
+    @Override
+    public void begin() {
+        size = 0;
+    }
+    
+    @Override
+    public void node(double t, double x) {
+        if (size == this.t.length) {
+            this.t = Arrays.copyOf(this.t, size * 2);
+            this.x = Arrays.copyOf(this.x, size * 2);
+        }
+        this.t[size] = t;
+        this.x[size] = x;
+        size++;
+    }
+    
+    @Override
+    public void end() {
+        fireTableDataChanged();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? Integer.class : Double.class;
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0:
+                return row;
+            case 1:
+                return t[row];
+            default:
+                return x[row];
+        }
+    }
+}
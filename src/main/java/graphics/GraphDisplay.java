@@ -1,14 +1,21 @@
 package graphics;
 
+import math.GridInterpolator;
 import math.InterpolationException;
 import math.Interpolator;
-import math.PointDouble;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
 
+/**
+ * Plots interpolators as polylines. Bounds and pixel space polylines are cached per interpolator
+ * and the whole plot is kept in an offscreen image, so a repaint that changed nothing only copies the image.
+ * Polylines are rebuilt when the bounds or the size change and the image when the interpolators are set too,
+ * so the lists passed in shouldn't be modified afterwards.
+ */
 public class GraphDisplay extends JPanel {
     private static final int MARGIN_X = 50;
     private static final int MARGIN_Y = 50;
@@ -18,6 +25,8 @@ public class GraphDisplay extends JPanel {
     private static final Color GRAPH_HIGHLIGHT_COLOR = new Color(0x00ff00);
     private static final Color POINT_COLOR = Color.YELLOW;
     private static final int POINT_SIZE = 5;
+    //Samples per pixel column of interpolators that only expose evaluate, grids are decimated from their nodes
+    private static final int SUBSAMPLES = 4;
     
     private List<Interpolator> interpolators = new ArrayList<>();
     private List<Interpolator> interpolatorsHighligthed = new ArrayList<>();
@@ -32,34 +41,57 @@ public class GraphDisplay extends JPanel {
     private double minY = -Double.MAX_VALUE;
     private double maxY = +Double.MAX_VALUE;
     
+    private final Map<Interpolator, Series> series = new IdentityHashMap<>();
+    //Incremented whenever the mapping to pixels changes, polylines of older views are rebuilt
+    private int view;
+    private int viewWidth;
+    private int viewHeight;
+    //Reused while the display fits into it, redrawn when not valid
+    private BufferedImage layer;
+    private boolean layerValid;
+    
     public GraphDisplay() {
         super();
     }
     
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        calculateBounds();
+        updateView();
+        if (graphWidth() <= 0 || graphHeight() <= 0) {
+            super.paintComponent(g);
+            drawGrid(g);
+            return;
+        }
         
-        interpolators.forEach(i -> drawGraph(g,i,GRAPH_COLOR));
-        interpolatorsHighligthed.forEach(i -> drawGraph(g, i, GRAPH_HIGHLIGHT_COLOR));
-        drawGrid(g);
+        if (layer == null || layer.getWidth() < getWidth() || layer.getHeight() < getHeight()) {
+            layer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+            layerValid = false;
+        }
+        if (!layerValid) {
+            Graphics2D layerGraphics = layer.createGraphics();
+            layerGraphics.setColor(getBackground());
+            layerGraphics.fillRect(0, 0, getWidth(), getHeight());
+            layerGraphics.setFont(getFont());
+            interpolators.forEach(i -> drawGraph(layerGraphics, i, GRAPH_COLOR));
+            interpolatorsHighligthed.forEach(i -> drawGraph(layerGraphics, i, GRAPH_HIGHLIGHT_COLOR));
+            drawGrid(layerGraphics);
+            layerGraphics.dispose();
+            layerValid = true;
+        }
+        g.drawImage(layer, 0, 0, getWidth(), getHeight(), 0, 0, getWidth(), getHeight(), null);
     }
     
     
     private void drawGraph(Graphics g, Interpolator interpolator, Color color) {
         g.setColor(color);
-        int prev = 0;
-        for (int i = 0; i < graphWidth(); i++) {
-            try {
-                PointDouble val = graphToValue(new PointDouble(i + MARGIN_X, 0));
-                val = new PointDouble(val.getX(), interpolator.evaluate(val.getX()));
-                val = valueToGraph(val);
-                if (i != 0) {
-                    g.drawLine(MARGIN_X + i - 1, prev, (int) Math.round(val.getX()), (int) Math.round(val.getY()));
-                }
-                prev = (int) Math.round(val.getY());
-            } catch (InterpolationException ignored) {}
+        Series s = series(interpolator);
+        if (s.view != view) {
+            s.trace(this);
+            s.view = view;
+        }
+        for (int j = 0; j < s.xs.size(); j++) {
+            int[] xs = s.xs.get(j);
+            g.drawPolyline(xs, s.ys.get(j), xs.length);
         }
     }
     
@@ -108,7 +140,9 @@ public class GraphDisplay extends JPanel {
     }
     
     public void setInterpolators(List<Interpolator> interpolators) {
-        this.interpolators = interpolators;
+        this.interpolators = interpolators == null ? new ArrayList<>() : interpolators;
+        forgetHidden();
+        layerValid = false;
     }
     
     public List<Interpolator> getInterpolatorsHighligthed() {
@@ -116,41 +150,83 @@ public class GraphDisplay extends JPanel {
     }
     
     public void setInterpolatorsHighligthed(List<Interpolator> interpolatorsHighligthed) {
-        this.interpolatorsHighligthed = interpolatorsHighligthed;
+        this.interpolatorsHighligthed = interpolatorsHighligthed == null ? new ArrayList<>() : interpolatorsHighligthed;
+        forgetHidden();
+        layerValid = false;
+    }
+    
+    /**Drops the cached series of interpolators that aren't shown anymore*/
+    private void forgetHidden() {
+        Set<Interpolator> shown = Collections.newSetFromMap(new IdentityHashMap<>());
+        shown.addAll(interpolators);
+        shown.addAll(interpolatorsHighligthed);
+        series.keySet().retainAll(shown);
+    }
+    
+    private Series series(Interpolator interpolator) {
+        return series.computeIfAbsent(interpolator, Series::new);
     }
     
-    private void calculateBounds() {
-        if (interpolators == null) {
-            interpolators = new ArrayList<>();
+    /**Recalculates the bounds from the cached ones and starts a new view if they or the size changed*/
+    private void updateView() {
+        double lowerX = Double.NaN;
+        double upperX = Double.NaN;
+        double lowerY = Double.NaN;
+        double upperY = Double.NaN;
+        boolean empty = true;
+        for (List<Interpolator> list : Arrays.asList(interpolators, interpolatorsHighligthed)) {
+            for (Interpolator interpolator : list) {
+                Series s = series(interpolator);
+                if (empty) {
+                    lowerX = s.lower;
+                    upperX = s.upper;
+                    lowerY = s.lowerVal;
+                    upperY = s.upperVal;
+                    empty = false;
+                    continue;
+                }
+                //Same ordering as Double.compareTo, so NaN counts as the largest value
+                lowerX = Double.compare(s.lower, lowerX) < 0 ? s.lower : lowerX;
+                upperX = Double.compare(s.upper, upperX) > 0 ? s.upper : upperX;
+                lowerY = Double.compare(s.lowerVal, lowerY) < 0 ? s.lowerVal : lowerY;
+                upperY = Double.compare(s.upperVal, upperY) > 0 ? s.upperVal : upperY;
+            }
         }
-        if (interpolatorsHighligthed == null) {
-            interpolatorsHighligthed = new ArrayList<>();
+        lowerX = Math.max(empty ? 0 : lowerX, minX);
+        upperX = Math.min(empty ? 0 : upperX, maxX);
+        lowerY = Math.max(empty ? 0 : lowerY, minY);
+        upperY = Math.min(empty ? 0 : upperY, maxY);
+        
+        if (Double.compare(lowerX, this.lowerX) != 0 || Double.compare(upperX, this.upperX) != 0
+                || Double.compare(lowerY, this.lowerY) != 0 || Double.compare(upperY, this.upperY) != 0
+                || getWidth() != viewWidth || getHeight() != viewHeight) {
+            this.lowerX = lowerX;
+            this.upperX = upperX;
+            this.lowerY = lowerY;
+            this.upperY = upperY;
+            viewWidth = getWidth();
+            viewHeight = getHeight();
+            view++;
+            layerValid = false;
         }
+    }
     
-        List<Interpolator> all = new ArrayList<>(interpolators);
-        all.addAll(interpolatorsHighligthed);
-        
-        Optional<Double> lowerX = all.stream().map(Interpolator::lower).min(Comparator.naturalOrder());
-        Optional<Double> upperX = all.stream().map(Interpolator::upper).max(Comparator.naturalOrder());
-        Optional<Double> lowerY = all.stream().map(Interpolator::lowerVal).min(Comparator.naturalOrder());
-        Optional<Double> upperY = all.stream().map(Interpolator::upperVal).max(Comparator.naturalOrder());
-        
-        this.lowerX = Math.max(lowerX.isPresent() ? lowerX.get() : 0, minX);
-        this.upperX = Math.min(upperX.isPresent() ? upperX.get() : 0, maxX);
-        this.lowerY = Math.max(lowerY.isPresent() ? lowerY.get() : 0, minY);
-        this.upperY = Math.min(upperY.isPresent() ? upperY.get() : 0, maxY);
+    /**@return Value of t at pixel column x*/
+    private double columnToValue(double x) {
+        double valX = (x - (MARGIN_X + (graphWidth() * EXTRA_AMOUNT))) / ((MARGIN_X + (graphWidth() * (1 - EXTRA_AMOUNT))) - (MARGIN_X + (graphWidth() * EXTRA_AMOUNT)));
+        return lowerX() * (1 - valX) + upperX() * valX;
     }
     
-    private PointDouble valueToGraph(PointDouble point) {
-        double valX = (point.getX() - lowerX()) / (upperX() - lowerX());
-        double valY = (point.getY() - lowerY()) / (upperY() - lowerY());
-        return new PointDouble(MARGIN_X + (int)((graphWidth() * EXTRA_AMOUNT) * (1 - valX) + (graphWidth() * (1 - EXTRA_AMOUNT)) * valX), getHeight() - MARGIN_Y - (int)((graphHeight() * EXTRA_AMOUNT) * (1 - valY) + (graphHeight() * (1 - EXTRA_AMOUNT)) * valY));
+    /**@return Pixel column of value t, the inverse of columnToValue*/
+    private double valueToColumn(double t) {
+        double valX = (t - lowerX()) / (upperX() - lowerX());
+        return (MARGIN_X + (graphWidth() * EXTRA_AMOUNT)) * (1 - valX) + (MARGIN_X + (graphWidth() * (1 - EXTRA_AMOUNT))) * valX;
     }
     
-    private PointDouble graphToValue(PointDouble point) {
-        double valX = (point.getX() - (MARGIN_X + (graphWidth() * EXTRA_AMOUNT))) / ((MARGIN_X + (graphWidth() * (1 - EXTRA_AMOUNT))) - (MARGIN_X + (graphWidth() * EXTRA_AMOUNT)));
-        double valY = (point.getY() - (MARGIN_Y + (graphHeight() * (1 - EXTRA_AMOUNT)))) / ((MARGIN_Y + (graphHeight() * EXTRA_AMOUNT)) - (MARGIN_Y + (graphHeight() * (1 - EXTRA_AMOUNT))));
-        return new PointDouble(lowerX() * (1 - valX) + upperX() * valX, lowerY() * (1 - valY) + upperY() * valY);
+    /**@return Pixel row of value y*/
+    private int valueToRow(double y) {
+        double valY = (y - lowerY()) / (upperY() - lowerY());
+        return getHeight() - MARGIN_Y - (int)((graphHeight() * EXTRA_AMOUNT) * (1 - valY) + (graphHeight() * (1 - EXTRA_AMOUNT)) * valY);
     }
     
     public double getMinX() {
@@ -184,4 +260,171 @@ public class GraphDisplay extends JPanel {
     public void setMaxY(double maxY) {
         this.maxY = maxY;
     }
+    
+    /**Bounds of an interpolator and its polylines in the pixel space of a view*/
+    private static class Series {
+        private final Interpolator interpolator;
+        private final double lower;
+        private final double upper;
+        private final double lowerVal;
+        private final double upperVal;
+        private int view = -1;
+        //Polylines split where the interpolator can't be evaluated
+        private final List<int[]> xs = new ArrayList<>();
+        private final List<int[]> ys = new ArrayList<>();
+        
+        private Series(Interpolator interpolator) {
+            this.interpolator = interpolator;
+            lower = interpolator.lower();
+            upper = interpolator.upper();
+            lowerVal = interpolator.lowerVal();
+            upperVal = interpolator.upperVal();
+        }
+        
+        private void trace(GraphDisplay display) {
+            xs.clear();
+            ys.clear();
+            if (interpolator instanceof GridInterpolator) {
+                traceNodes(display, (GridInterpolator) interpolator);
+            }
+            else {
+                traceSamples(display);
+            }
+        }
+        
+        /**
+         * Decimates the nodes of the grid, whose segments are straight lines, in one pass. The outer segments are extended
+         * to the edges of the graph the way the interpolator extrapolates them, nodes outside the graph are skipped
+         * */
+        private void traceNodes(GraphDisplay display, GridInterpolator grid) {
+            int width = display.graphWidth();
+            double left = display.columnToValue(MARGIN_X);
+            double right = display.columnToValue(MARGIN_X + width);
+            Decimation decimation = new Decimation(width, this);
+            decimation.add(0, display.valueToRow(grid.evaluate(left)));
+            for (int i = 0; i < grid.size(); i++) {
+                double t = grid.getTime(i);
+                if (t > left && t < right) {
+                    int column = Math.min(width - 1, (int) display.valueToColumn(t) - MARGIN_X);
+                    decimation.add(column, display.valueToRow(grid.getValue(i)));
+                }
+            }
+            decimation.add(width - 1, display.valueToRow(grid.evaluate(right)));
+            decimation.flush();
+        }
+        
+        /**Samples every pixel column of the display SUBSAMPLES times, for interpolators that don't expose their nodes*/
+        private void traceSamples(GraphDisplay display) {
+            int width = display.graphWidth();
+            double[] arguments = new double[width * SUBSAMPLES];
+            for (int j = 0; j < arguments.length; j++) {
+                arguments[j] = display.columnToValue(MARGIN_X + j / (double) SUBSAMPLES);
+            }
+            double[] values = new double[arguments.length];
+            boolean[] missing = new boolean[arguments.length];
+            try {
+                interpolator.evaluate(arguments, values);
+            } catch (InterpolationException e) {
+                //One by one, so that only the failing samples leave gaps
+                for (int j = 0; j < arguments.length; j++) {
+                    try {
+                        values[j] = interpolator.evaluate(arguments[j]);
+                    } catch (InterpolationException ignored) {
+                        missing[j] = true;
+                    }
+                }
+            }
+            
+            Decimation decimation = new Decimation(width, this);
+            for (int i = 0; i < width; i++) {
+                boolean any = false;
+                for (int k = 0; k < SUBSAMPLES; k++) {
+                    int j = i * SUBSAMPLES + k;
+                    if (!missing[j]) {
+                        decimation.add(i, display.valueToRow(values[j]));
+                        any = true;
+                    }
+                }
+                if (!any) {
+                    decimation.flush();
+                }
+            }
+            decimation.flush();
+        }
+    }
+    
+    /**
+     * Reduces vertices met in increasing pixel columns to up to four per column:
+     * the first, lowest, highest and last rows in the order they were met
+     * */
+    private static class Decimation {
+        private final Series series;
+        private final int[] segmentX;
+        private final int[] segmentY;
+        private int size;
+        private int column = -1;
+        private int first;
+        private int low;
+        private int high;
+        private int last;
+        private boolean lowFirst;
+        
+        private Decimation(int width, Series series) {
+            this.series = series;
+            segmentX = new int[4 * width];
+            segmentY = new int[4 * width];
+        }
+        
+        /**@param column Pixel column counted from the left edge of the graph, not below the previous one*/
+        private void add(int column, int row) {
+            if (column != this.column) {
+                close();
+                this.column = column;
+                first = low = high = last = row;
+                lowFirst = false;
+                return;
+            }
+            if (row < low) {
+                low = row;
+                lowFirst = false;
+            }
+            if (row > high) {
+                high = row;
+                lowFirst = true;
+            }
+            last = row;
+        }
+        
+        /**Ends the polyline, the next vertex starts a new one*/
+        private void flush() {
+            close();
+            column = -1;
+            if (size > 1) {
+                series.xs.add(Arrays.copyOf(segmentX, size));
+                series.ys.add(Arrays.copyOf(segmentY, size));
+            }
+            size = 0;
+        }
+        
+        private void close() {
+            if (column < 0) {
+                return;
+            }
+            int x = MARGIN_X + column;
+            vertex(x, first);
+            vertex(x, lowFirst ? low : high);
+            vertex(x, lowFirst ? high : low);
+            vertex(x, last);
+        }
+        
+        /**Appends a vertex unless it repeats the previous one*/
+        private void vertex(int x, int y) {
+            if (size > 0 && segmentX[size - 1] == x && segmentY[size - 1] == y) {
+                return;
+            }
+            segmentX[size] = x;
+            segmentY[size] = y;
+            size++;
+        }
+    }
 }
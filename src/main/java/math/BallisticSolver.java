@@ -1,46 +1,277 @@
 package math;
 
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import metrics.Phase;
+import metrics.SolveMetrics;
+
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.function.Function;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
 
 public class BallisticSolver implements VariationalSolver {
     public static final double INITIAL_Z = 1;
     public static final int STEPS = 100;
+    private static final int BRACKET_MAX = 16;
+    private final OdeIntegrator integrator;
+    private final ForkJoinPool pool;
+    private final int batch;
+    private LineSearch.Method lineSearchMethod = SolverUtils.LINE_SEARCH;
+    private volatile boolean cancelled;
+    private ProgressListener listener;
+    //Probes integrated so far and their evaluations, which may run concurrently
+    private int iteration;
+    private final LongAdder evaluations = new LongAdder();
+    private final SolveMetrics metrics = new SolveMetrics();
+    //Nodes of the serial probes, reused so only the returned trajectory is allocated
+    private final NodeBuffer probeNodes = new NodeBuffer();
+    
+    public BallisticSolver() {
+        this(new EulerIntegrator(STEPS), null, 0);
+    }
+    
+    /**Searches for z0 by integrating batches of candidates concurrently on the pool, the integrand has to be thread safe*/
+    public BallisticSolver(ForkJoinPool pool) {
+        this(new EulerIntegrator(STEPS), pool);
+    }
+    
+    /**@param pool Integrates candidates concurrently when not null, the integrand has to be thread safe then*/
+    public BallisticSolver(OdeIntegrator integrator, ForkJoinPool pool) {
+        this(integrator, pool, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+    
+    public BallisticSolver(OdeIntegrator integrator, ForkJoinPool pool, int batch) {
+        if (pool != null && batch < 2) {
+            throw new IllegalArgumentException("Batch has to contain at least two candidates");
+        }
+        this.integrator = integrator;
+        this.pool = pool;
+        this.batch = batch;
+    }
+    
+    @Override
+    public List<Interpolator> solve(Integrand integrand, PointDouble start, PointDouble end) {
+        return solve(integrand, start, end, null);
+    }
+    
+    /**
+     * Writes every probe into sink, the solution last. Serial probes are written node by node while they are integrated,
+     * concurrent ones once their batch is done. Probes that can't be integrated are left out of the batches,
+     * a serial one is ended where the integration stopped.
+     * @param sink Called on the thread running the solve, ignored if null
+     * */
     @Override
-    public List<Interpolator> solve(Function<List<Double>, Double> function, PointDouble start, PointDouble end) {
+    public List<Interpolator> solve(Integrand integrand, PointDouble start, PointDouble end, TrajectorySink sink) {
+        try {
+            return solveInternal(integrand, start, end, sink);
+        }
+        finally {
+            cancelled = false;
+        }
+    }
+    
+    private List<Interpolator> solveInternal(Integrand integrand, PointDouble start, PointDouble end, TrajectorySink sink) {
+        metrics.clear();
+        long solveStart = System.nanoTime();
+        iteration = 0;
+        evaluations.reset();
+        Integrand function = (t, x, z) -> {
+            evaluations.increment();
+            return integrand.apply(t, x, z);
+        };
         List<Interpolator> outList = new ArrayList<>();
         
-        SolverUtils.findMin(z -> Math.abs(findError(function, z, start, end, outList)),1, INITIAL_Z);
+        if (pool == null || !solveBracketed(function, start, end, outList, sink)) {
+            //The line search revisits its bracket ends, each of which costs an integration
+            DoubleUnaryOperator error = z -> {
+                checkCancelled();
+                double res = Math.abs(probe(function, z, start, end, outList, sink));
+                return Double.isNaN(res) ? Double.POSITIVE_INFINITY : res;
+            };
+            double z0 = SolverUtils.findMinPrimitive(new EvaluationCache().wrapScalar(error), 1, INITIAL_Z, lineSearchMethod, metrics);
+            //The search returns its best z0 without integrating it last, the solution is the final trajectory
+            probe(function, z0, start, end, outList, sink);
+        }
+        metrics.add(Counter.EVALUATIONS, evaluations.sum());
+        metrics.stop(Phase.SOLVE, solveStart);
+        MetricsRegistry.getDefault().record(metrics);
         return outList;
     }
     
-    private double findError(Function<List<Double>, Double> function, double z0, PointDouble start, PointDouble end, List<Interpolator> outSequenceList) {
-        double deltaT = (end.getX() - start.getX()) / (double)STEPS;
-        double currT = start.getX();
-        double currX = start.getY();
-        double currZ = z0;
-        double nextX;
-        double nextZ;
-        List<PointDouble> points = new ArrayList<>();
-        
-        for (int i = 0; i <= STEPS; i++) {
-        points.add(new PointDouble(currT, currX));
-        
-        if (i == STEPS) {
-            break;
+    /**
+     * Looks for a sign change of the end point error among batches of widening candidates, then narrows it down
+     * by evaluating a batch of points inside the bracket at once
+     * @return false if no sign change was found
+     */
+    private boolean solveBracketed(Integrand function, PointDouble start, PointDouble end, List<Interpolator> outList, TrajectorySink sink) {
+        double[] z = new double[batch];
+        double lower = 0;
+        double upper = 0;
+        double lowerError = 0;
+        boolean found = false;
+        double scale = 1;
+        for (int k = 0; k < BRACKET_MAX && !found; k++) {
+            for (int j = 0; j < batch; j++) {
+                z[j] = INITIAL_Z + scale * (2.0 * j / (batch - 1) - 1);
+            }
+            double[] errors = findErrors(function, z, start, end, outList, sink);
+            for (int j = 0; j < batch - 1; j++) {
+                if (errors[j] * errors[j + 1] <= 0) {
+                    lower = z[j];
+                    upper = z[j + 1];
+                    lowerError = errors[j];
+                    found = true;
+                    break;
+                }
+            }
+            scale *= 4;
+        }
+        if (!found) {
+            return false;
         }
         
-        nextX = currX + currZ * deltaT;
-        nextZ = currZ + function.apply(Arrays.asList(currT, currX, currZ)) * deltaT;
-        
-        currT += deltaT;
-        currX = nextX;
-        currZ = nextZ;
+        while (upper - lower > EPSILON && lowerError != 0) {
+            for (int j = 0; j < batch; j++) {
+                z[j] = lower + (upper - lower) * (j + 1) / (batch + 1);
+            }
+            double[] errors = findErrors(function, z, start, end, outList, sink);
+            double width = upper - lower;
+            double nextUpper = upper;
+            for (int j = 0; j < batch; j++) {
+                if (Double.isNaN(errors[j])) {
+                    continue;
+                }
+                if (lowerError * errors[j] <= 0) {
+                    nextUpper = z[j];
+                    break;
+                }
+                lower = z[j];
+                lowerError = errors[j];
+            }
+            upper = nextUpper;
+            if (upper - lower >= width) {
+                //None of the candidates inside could be integrated
+                break;
+            }
+        }
+        probe(function, lowerError == 0 ? lower : (lower + upper) / 2, start, end, outList, sink);
+        return true;
+    }
+    
+    public LineSearch.Method getLineSearchMethod() {
+        return lineSearchMethod;
+    }
+    
+    /**Search for z0 when there is no pool or the bracketing finds no sign change*/
+    public void setLineSearchMethod(LineSearch.Method lineSearchMethod) {
+        this.lineSearchMethod = lineSearchMethod;
+    }
+    
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public ProgressListener getListener() {
+        return listener;
+    }
+    
+    /**Receives every integrated probe with its z0 as the point, concurrent ones once their batch is done*/
+    @Override
+    public void setListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+    
+    /**Evaluations count the integrand, probes the integrated trajectories*/
+    @Override
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+    
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+    
+    /**Integrates the candidates concurrently, calling function from several pool threads at once*/
+    private double[] findErrors(Integrand function, double[] z0, PointDouble start, PointDouble end, List<Interpolator> outSequenceList, TrajectorySink sink) {
+        checkCancelled();
+        metrics.add(Counter.PROBES, z0.length);
+        long integrationStart = System.nanoTime();
+        double[] errors = new double[z0.length];
+        Interpolator[] trajectories = new Interpolator[z0.length];
+        pool.submit(() -> IntStream.range(0, z0.length).parallel().forEach(j -> {
+            List<Interpolator> out = new ArrayList<>(1);
+            errors[j] = findError(function, z0[j], start, end, out, new NodeBuffer(), null);
+            trajectories[j] = out.isEmpty() ? null : out.get(0);
+        })).join();
+        metrics.stop(Phase.INTEGRATION, integrationStart);
+        for (int j = 0; j < z0.length; j++) {
+            if (trajectories[j] != null) {
+                outSequenceList.add(trajectories[j]);
+                if (sink != null) {
+                    TrajectorySink.nodes((GridInterpolator) trajectories[j], sink);
+                }
+                publish(z0[j], errors[j], trajectories[j]);
+            }
+        }
+        return errors;
+    }
+    
+    /**Integrates a single trajectory on the calling thread*/
+    private double probe(Integrand function, double z0, PointDouble start, PointDouble end, List<Interpolator> outSequenceList, TrajectorySink sink) {
+        metrics.increment(Counter.PROBES);
+        long integrationStart = System.nanoTime();
+        double res = findError(function, z0, start, end, outSequenceList, probeNodes, sink);
+        metrics.stop(Phase.INTEGRATION, integrationStart);
+        if (!Double.isNaN(res)) {
+            publish(z0, res, outSequenceList.get(outSequenceList.size() - 1));
+        }
+        return res;
+    }
+    
+    /**Reports an integrated probe, its value is the absolute end point error*/
+    private void publish(double z0, double error, Interpolator trajectory) {
+        if (listener != null) {
+            listener.progress(new ProgressEvent(iteration++, new double[] {z0}, Math.abs(error), evaluations.sum(), trajectory));
+        }
+    }
+    
+    /**
+     * @param buffer Collects the nodes, refilled from empty
+     * @param sink Receives the nodes as they are integrated, ignored if null
+     * @return NaN if the integrator can't reach the end, nothing is added to outSequenceList then
+     * */
+    private double findError(Integrand function, double z0, PointDouble start, PointDouble end, List<Interpolator> outSequenceList, NodeBuffer buffer, TrajectorySink sink) {
+        buffer.begin();
+        TrajectorySink nodes = buffer;
+        if (sink != null) {
+            sink.begin();
+            nodes = (t, x) -> {
+                buffer.node(t, x);
+                sink.node(t, x);
+            };
+        }
+        double[] state;
+        try {
+            state = integrator.integrate(function, start.getX(), start.getY(), z0, end.getX(), nodes);
+        }
+        catch (ArithmeticException e) {
+            //A probe that blows up only rules out its z0, the search goes on with the others
+            return Double.NaN;
+        }
+        finally {
+            if (sink != null) {
+                sink.end();
+            }
         }
-        outSequenceList.add(new LinearInterpolator(points));
+        outSequenceList.add(buffer.toInterpolator());
         
-        return end.getY() - currX;
+        return end.getY() - state[0];
     }
 }
@@ -0,0 +1,73 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves many boundary problems sharing one integrand on an executor.
+ * Each worker thread creates its own solver and integrand on first use and keeps them for the following problems,
+ * so solver scratch state is never shared. Results are returned in input order.
+ */
+public class BatchSolver {
+    private final ThreadLocal<VariationalSolver> solvers;
+    private final ThreadLocal<Integrand> integrands;
+    private final ExecutorService executor;
+    
+    /**Solves on the common fork join pool*/
+    public BatchSolver(Supplier<? extends VariationalSolver> solvers, Integrand integrand) {
+        this(solvers, integrand, ForkJoinPool.commonPool());
+    }
+    
+    /**@param integrand Shared by all threads, has to be thread safe like the closures of {@link ExpressionCompiler}*/
+    public BatchSolver(Supplier<? extends VariationalSolver> solvers, Integrand integrand, ExecutorService executor) {
+        this(solvers, () -> integrand, executor);
+    }
+    
+    /**@param integrands Called once per worker thread, for integrands that keep state like an mXparser function*/
+    public BatchSolver(Supplier<? extends VariationalSolver> solvers, Supplier<? extends Integrand> integrands, ExecutorService executor) {
+        this.solvers = ThreadLocal.withInitial(solvers);
+        this.integrands = ThreadLocal.withInitial(integrands);
+        this.executor = executor;
+    }
+    
+    /**@return Solutions in the order of problems, as returned by {@link VariationalSolver#solve}*/
+    public List<List<Interpolator>> solve(Collection<BoundaryProblem> problems) throws InterruptedException {
+        return solve(problems.stream());
+    }
+    
+    /**@return Solutions in the order of problems, as returned by {@link VariationalSolver#solve}*/
+    public List<List<Interpolator>> solve(Stream<BoundaryProblem> problems) throws InterruptedException {
+        List<Future<List<Interpolator>>> futures = problems
+                .map(p -> executor.submit(() -> solvers.get().solve(integrands.get(), p.getStart(), p.getEnd())))
+                .collect(Collectors.toList());
+        List<List<Interpolator>> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<List<Interpolator>> future : futures) {
+                results.add(future.get());
+            }
+        }
+        catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+        return results;
+    }
+}
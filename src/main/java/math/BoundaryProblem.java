@@ -0,0 +1,20 @@
+package math;
+
+/**Boundary points of a variational problem, the integrand is shared by a batch*/
+public class BoundaryProblem {
+    private final PointDouble start;
+    private final PointDouble end;
+    
+    public BoundaryProblem(PointDouble start, PointDouble end) {
+        this.start = start;
+        this.end = end;
+    }
+    
+    public PointDouble getStart() {
+        return start;
+    }
+    
+    public PointDouble getEnd() {
+        return end;
+    }
+}
@@ -0,0 +1,129 @@
+package math;
+
+import metrics.Phase;
+import trace.Level;
+import trace.TraceEvent;
+import trace.Tracer;
+
+/**
+ * Brent's minimization: parabolic interpolation through the three best points,
+ * falling back to a golden section step whenever the parabola is unreliable.
+ * On smooth functions it converges superlinearly instead of shrinking the interval by a fixed ratio.
+ */
+public class BrentSolver extends Solver1D {
+    private static final double RATIO = (3 - Math.sqrt(5)) / 2;
+    private static final double RELATIVE_TOLERANCE = 1.5e-8;
+    private static final int I_MAX = 100;
+    private static final TraceEvent PARABOLIC = new TraceEvent("parabolic", "a", "b", "x", "u", "f(u)");
+    private static final TraceEvent GOLDEN = new TraceEvent("golden", "a", "b", "x", "u", "f(u)");
+    
+    /**
+     * Minimizes starting from a bracket, which saves evaluating its inner point again
+     * @param inner Point between lower and upper with f(inner) not above f at either end
+     * @param innerValue f(inner)
+     * */
+    public PointDouble solve(double lower, double inner, double upper, double innerValue) {
+        clearSolution();
+        long start = System.nanoTime();
+        PointDouble res = minimize(lower, inner, upper, innerValue);
+        getMetrics().stop(Phase.SOLVE, start);
+        return res;
+    }
+    
+    @Override
+    protected PointDouble solveInternal(double lower, double upper) {
+        double inner = lower + RATIO * (upper - lower);
+        return minimize(lower, inner, upper, apply(inner));
+    }
+    
+    private PointDouble minimize(double lower, double inner, double upper, double innerValue) {
+        double a = Math.min(lower, upper);
+        double b = Math.max(lower, upper);
+        //x is the best point so far, w the second best and v the previous value of w
+        double x = inner;
+        double w = inner;
+        double v = inner;
+        double fx = innerValue;
+        double fw = innerValue;
+        double fv = innerValue;
+        double d = 0;
+        double e = 0;
+        
+        for (int i = 0; i < I_MAX; i++) {
+            double middle = (a + b) / 2;
+            double tol1 = RELATIVE_TOLERANCE * Math.abs(x) + EPSILON / 4;
+            double tol2 = 2 * tol1;
+            if (Math.abs(x - middle) <= tol2 - (b - a) / 2) {
+                break;
+            }
+            boolean parabolic = false;
+            if (Math.abs(e) > tol1) {
+                double r = (x - w) * (fx - fv);
+                double q = (x - v) * (fx - fw);
+                double p = (x - v) * q - (x - w) * r;
+                q = 2 * (q - r);
+                if (q > 0) {
+                    p = -p;
+                }
+                q = Math.abs(q);
+                double prevE = e;
+                e = d;
+                //The parabola is accepted if its minimum is inside the interval and the step is shrinking
+                if (Math.abs(p) < Math.abs(q * prevE / 2) && p > q * (a - x) && p < q * (b - x)) {
+                    d = p / q;
+                    double u = x + d;
+                    if (u - a < tol2 || b - u < tol2) {
+                        d = Math.copySign(tol1, middle - x);
+                    }
+                    parabolic = true;
+                }
+            }
+            if (!parabolic) {
+                e = x >= middle ? a - x : b - x;
+                d = RATIO * e;
+            }
+            double u = Math.abs(d) >= tol1 ? x + d : x + Math.copySign(tol1, d);
+            double fu = apply(u);
+            
+            Tracer tracer = getTracer();
+            if (tracer.begin(Level.DEBUG, parabolic ? PARABOLIC : GOLDEN, i)) {
+                tracer.add(a).add(b).add(x).add(u).add(fu).emit();
+            }
+            addPoint(u, fu);
+            
+            if (fu <= fx) {
+                if (u >= x) {
+                    a = x;
+                }
+                else {
+                    b = x;
+                }
+                v = w;
+                fv = fw;
+                w = x;
+                fw = fx;
+                x = u;
+                fx = fu;
+            }
+            else {
+                if (u < x) {
+                    a = u;
+                }
+                else {
+                    b = u;
+                }
+                if (fu <= fw || w == x) {
+                    v = w;
+                    fv = fw;
+                    w = u;
+                    fw = fu;
+                }
+                else if (fu <= fv || v == x || v == w) {
+                    v = u;
+                    fv = fu;
+                }
+            }
+        }
+        return new PointDouble(x, fx);
+    }
+}
@@ -1,64 +1,88 @@
 package math;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import trace.Level;
+import trace.TraceEvent;
+import trace.Tracer;
 
 public class ChainGradientSolver extends SolverND {
     private int I_MAX = 64;
     private double DESC_RATE = 1;
+    private static final TraceEvent STEP = new TraceEvent("step", "start[]", "end[]", "gradient[]", "beta");
+    private final LineSearch lineSearch;
+    
+    /**Searches lines with {@link SolverUtils#LINE_SEARCH}*/
+    public ChainGradientSolver() {
+        this(SolverUtils.LINE_SEARCH);
+    }
+    
+    public ChainGradientSolver(LineSearch.Method lineSearchMethod) {
+        lineSearch = new LineSearch(lineSearchMethod);
+    }
     
     @Override
-    protected List<Double> solveInternal(List<Double> data) {
+    protected double[] solveInternal(double[] data) {
         
-        List<Double> curr = data;
-        List<Double> prev = new ArrayList<>(curr);
-        List<Double> grad = gradient(curr);
-        List<Double> s = grad.stream().map(v -> -DESC_RATE * v).collect(Collectors.toList());
-        List<Double> prevS;
-        List<Double> prevGrad;
+        int size = data.length;
+        double[] curr = data;
+        double[] prev = curr.clone();
+        double[] grad = new double[size];
+        double[] prevGrad = new double[size];
+        double[] s = new double[size];
+        double[] prevS = new double[size];
+        double[] tmp;
+        lineSearch.setMetrics(getMetrics());
+        gradient(curr, grad);
+        for (int j = 0; j < size; j++) {
+            s[j] = -DESC_RATE * grad[j];
+        }
         int i = 0;
         double delta;
         double beta;
         do {
+            tmp = prev;
             prev = curr;
+            curr = tmp;
+            tmp = prevGrad;
             prevGrad = grad;
+            grad = tmp;
+            tmp = prevS;
             prevS = s;
-            grad = gradient(prev);
-            Optional<Double> b = grad.stream().map(v -> v * v).reduce(Double::sum);
-            Optional<Double> pb = prevGrad.stream().map(v -> v * v).reduce(Double::sum);
-            beta = b.orElse(1.0) / pb.orElse(1.0);
-            s = new ArrayList<>();
-            if (i > 0) {
-                for (int j = 0; j < grad.size(); j++) {
-                    s.add(-grad.get(j) * DESC_RATE + prevS.get(j) * beta);
-                }
+            s = tmp;
+            gradient(prev, grad);
+            double b = 0;
+            double pb = 0;
+            for (int j = 0; j < size; j++) {
+                b += grad[j] * grad[j];
+                pb += prevGrad[j] * prevGrad[j];
             }
-            else {
-                s = grad.stream().map(v -> -v * DESC_RATE).collect(Collectors.toList());
+            beta = (size > 0 ? b : 1.0) / (size > 0 ? pb : 1.0);
+            for (int j = 0; j < size; j++) {
+                s[j] = i > 0 ? -grad[j] * DESC_RATE + prevS[j] * beta : -grad[j] * DESC_RATE;
             }
-            curr = SolverUtils.findMinOnAxis(getF(), s, prev);
+            lineSearch.findMinOnAxis(getObjective(), s, prev, curr);
             
             addPoint(prev);
             addPoint(curr);
-            addToLog(i + ") Start = " + prev.toString() + "; End = " + curr.toString() + "; Gradient = " + grad.toString() + "; Beta = " + beta);
+            trace(i, prev, curr, grad, beta);
             delta = 0;
-            for (int j = 0; j < curr.size(); j++) {
-                delta += Math.pow(curr.get(j) - prev.get(j), 2);
+            for (int j = 0; j < size; j++) {
+                delta += Math.pow(curr[j] - prev[j], 2);
             }
             delta = Math.sqrt(delta);
+            progress(i, curr);
             
             i++;
         } while (i < I_MAX && delta > EPSILON);
         addPoint(prev);
         addPoint(curr);
-        addToLog(i + ") Start = " + prev.toString() + "; End = " + curr.toString() + "; Gradient = " + grad.toString() + "; Beta = " + beta);
+        trace(i, prev, curr, grad, beta);
         return curr;
     }
     
-    @Override
-    protected int getLogBatchSize() {
-        return 1;
+    private void trace(int iteration, double[] start, double[] end, double[] grad, double beta) {
+        Tracer tracer = getTracer();
+        if (tracer.begin(Level.DEBUG, STEP, iteration)) {
+            tracer.add(start).add(end).add(grad).add(beta).emit();
+        }
     }
 }
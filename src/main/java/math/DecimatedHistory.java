@@ -0,0 +1,85 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps every n-th iterate, starting with the first. Once the capacity is reached every other kept iterate
+ * is dropped and n is doubled, so the history spans the whole solve in bounded memory.
+ */
+public class DecimatedHistory implements IterateHistory {
+    public static final int CAPACITY = 1024;
+    
+    private final int initialStep;
+    private final double[][] rows;
+    private long step;
+    private long seen;
+    private int size;
+    
+    public DecimatedHistory(int step) {
+        this(step, CAPACITY);
+    }
+    
+    /**
+     * @param step Initial distance n between kept iterates
+     * @param capacity Number of iterates kept at most
+     * */
+    public DecimatedHistory(int step, int capacity) {
+        if (step < 1) {
+            throw new IllegalArgumentException("Decimation step has to be positive");
+        }
+        if (capacity < 2) {
+            throw new IllegalArgumentException("History capacity has to be at least 2");
+        }
+        this.initialStep = step;
+        this.step = step;
+        this.rows = new double[capacity][];
+    }
+    
+    /**@return Current distance between kept iterates*/
+    public long getStep() {
+        return step;
+    }
+    
+    @Override
+    public void clear() {
+        step = initialStep;
+        seen = 0;
+        size = 0;
+    }
+    
+    @Override
+    public void add(double[] point) {
+        long index = seen++;
+        if (index % step != 0) {
+            return;
+        }
+        if (size == rows.length) {
+            //Keeps the iterates at even multiples of step, the rows of the dropped ones are reused
+            for (int i = 0; 2 * i < size; i++) {
+                double[] tmp = rows[i];
+                rows[i] = rows[2 * i];
+                rows[2 * i] = tmp;
+            }
+            size = (size + 1) / 2;
+            step *= 2;
+            if (index % step != 0) {
+                return;
+            }
+        }
+        if (rows[size] == null || rows[size].length != point.length) {
+            rows[size] = new double[point.length];
+        }
+        System.arraycopy(point, 0, rows[size], 0, point.length);
+        size++;
+    }
+    
+    @Override
+    public List<double[]> getPoints() {
+        List<double[]> res = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            res.add(rows[i].clone());
+        }
+        return res;
+    }
+}
@@ -1,97 +1,353 @@
 package math;
 
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import metrics.Phase;
+import metrics.SolveMetrics;
+
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.function.Function;
+import java.util.concurrent.CancellationException;
 
 public class DirectSolver implements VariationalSolver {
+    public static final int COARSE_STEPS = 8;
+    private static final int REFINE_MAX = 16;
+    //Nodes are only removed where the merged segment stays well below the tolerance, so they aren't added back next pass
+    private static final double COARSEN_RATIO = 0.25;
     private int steps = 20;
+    private Method method = Method.GAUSS_SEIDEL;
+    private boolean multilevel;
+    private LineSearch.Method lineSearchMethod = SolverUtils.LINE_SEARCH;
+    private double tolerance;
+    private ProgressListener listener;
+    private volatile boolean cancelled;
+    private volatile SolverND current;
+    private final SolveMetrics metrics = new SolveMetrics();
+    private int iteration;
+    
+    public enum Method {
+        GAUSS_SEIDEL,
+        NEWTON,
+        LBFGS
+    }
     
     public DirectSolver(int steps) {
         this.steps = steps;
     }
     
+    public DirectSolver(int steps, Method method) {
+        this.steps = steps;
+        this.method = method;
+    }
+    
     @Override
-    public List<Interpolator> solve(Function<List<Double>, Double> function, PointDouble start, PointDouble end) {
-        SolverND solver = new GaussSeidelSolver();
-        List<Double> in = new ArrayList<>();
-        double delta = (end.getX() - start.getX()) / (steps + 1.0);
-        for (int i = 0; i < steps; i++) {
-            double alpha = i / (steps + 2.0);
-            //in.add(start.getY() * (1 - alpha) + end.getY() * alpha);
-            //in.add(1.0);
-            in.add(Math.random());
-        }
-        solver.setF(l -> functionalValue(function, l, start, end));
-        List<Double> result = solver.solve(in);
-        List<PointDouble> interpolationPoints = new ArrayList<>();
-        interpolationPoints.add(start);
-        for (int i = 0; i < result.size(); i++) {
-            interpolationPoints.add(new PointDouble(start.getX() + delta * (i + 1), result.get(i)));
+    public List<Interpolator> solve(Integrand integrand, PointDouble start, PointDouble end) {
+        return solve(integrand, start, end, null);
+    }
+    
+    /**
+     * Writes every accepted iterate of every level into sink as it is accepted, the solution last
+     * @param sink Called on the thread running the solve, ignored if null
+     * */
+    @Override
+    public List<Interpolator> solve(Integrand integrand, PointDouble start, PointDouble end, TrajectorySink sink) {
+        try {
+            return solveInternal(integrand, start, end, sink);
+        }
+        finally {
+            current = null;
+            cancelled = false;
         }
-        interpolationPoints.add(end);
-        
-        return new ArrayList<>(Collections.singletonList(new LinearInterpolator(interpolationPoints)));
     }
     
-    private double functionalValue(Function<List<Double>, Double> function, List<Double> values, PointDouble start, PointDouble end) {
-        double res = 0;
-        
-        double delta = (end.getX() - start.getX()) / (steps + 1.0);
-    
-        double nextT;
-        double currT = start.getX();
-        double nextX;
-        double currX = start.getY();
-        double currZ = 0;
-        double prevZ = 0;
-        double currF = 0;
-        double prevF = 0;
-        
-        for (int i = 0; i <= steps + 1; i++) {
-            if (i == 0) {
-                currX = start.getY();
-            }
-            else {
-                if (i == steps + 1) {
-                    currX = end.getY();
-                } else {
-                    currX = values.get(i - 1);
+    private List<Interpolator> solveInternal(Integrand integrand, PointDouble start, PointDouble end, TrajectorySink sink) {
+        metrics.clear();
+        long solveStart = System.nanoTime();
+        iteration = 0;
+        Integrand function = (t, x, z) -> {
+            metrics.increment(Counter.EVALUATIONS);
+            return integrand.apply(t, x, z);
+        };
+        List<Integer> levels = multilevel ? levels(steps) : Collections.singletonList(steps);
+        int levelSteps = tolerance > 0 ? Math.min(steps, COARSE_STEPS) : levels.get(0);
+        double[] in = new double[levelSteps];
+        for (int i = 0; i < levelSteps; i++) {
+            in[i] = Math.random();
+        }
+        List<PointDouble> interpolationPoints = solveLevel(function, start, end, uniformTimes(start, end, levelSteps), in, sink);
+        if (tolerance > 0) {
+            for (int k = 0; k < REFINE_MAX; k++) {
+                long meshStart = System.nanoTime();
+                double[] times = adaptTimes(interpolationPoints);
+                if (times == null) {
+                    metrics.stop(Phase.MESH, meshStart);
+                    break;
                 }
+                double[] next = prolong(interpolationPoints, times);
+                metrics.stop(Phase.MESH, meshStart);
+                interpolationPoints = solveLevel(function, start, end, times, next, sink);
             }
-            if (i == steps + 1 || i == steps) {
-                nextX = end.getY();
+        }
+        else {
+            for (int k = 1; k < levels.size(); k++) {
+                //Prolongation of the coarser solution is the starting point of the finer level
+                long meshStart = System.nanoTime();
+                double[] times = uniformTimes(start, end, levels.get(k));
+                double[] next = prolong(interpolationPoints, times);
+                metrics.stop(Phase.MESH, meshStart);
+                interpolationPoints = solveLevel(function, start, end, times, next, sink);
             }
-            else {
-                nextX = values.get(i);
+        }
+        
+        GridInterpolator solution = new GridInterpolator(interpolationPoints);
+        if (sink != null) {
+            TrajectorySink.nodes(solution, sink);
+        }
+        List<Interpolator> res = new ArrayList<>(Collections.singletonList(solution));
+        metrics.stop(Phase.SOLVE, solveStart);
+        MetricsRegistry.getDefault().record(metrics);
+        return res;
+    }
+    
+    @Override
+    public void cancel() {
+        cancelled = true;
+        SolverND solver = current;
+        if (solver != null) {
+            solver.cancel();
+        }
+    }
+    
+    public ProgressListener getListener() {
+        return listener;
+    }
+    
+    /**Receives the current trajectory after each iteration of every level, iterations are numbered across levels*/
+    @Override
+    public void setListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+    
+    /**@return Integrand evaluations of the last solve*/
+    public long getEvaluations() {
+        return metrics.get(Counter.EVALUATIONS);
+    }
+    
+    /**Evaluations count the integrand, iterations and line searches are summed over the minimizations of all levels*/
+    @Override
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public double getTolerance() {
+        return tolerance;
+    }
+    
+    /**
+     * Enables the adaptive mesh: starting from a coarse uniform grid, segments whose interpolation error estimated
+     * from the curvature of the solution exceeds tolerance are split and nodes of flat regions are removed,
+     * re-solving from the previous solution until the mesh settles. Steps becomes the node budget.
+     * @param tolerance Error bound of the linear interpolation between nodes, 0 for the uniform grid
+     * */
+    public void setTolerance(double tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Tolerance has to be non-negative");
+        }
+        this.tolerance = tolerance;
+    }
+    
+    public boolean isMultilevel() {
+        return multilevel;
+    }
+    
+    /**Solves on successively halved grids first, each solution is interpolated as the start of the next finer one*/
+    public void setMultilevel(boolean multilevel) {
+        this.multilevel = multilevel;
+    }
+    
+    public LineSearch.Method getLineSearchMethod() {
+        return lineSearchMethod;
+    }
+    
+    /**Coordinate searches of {@link Method#GAUSS_SEIDEL}, the other methods pick their own step lengths*/
+    public void setLineSearchMethod(LineSearch.Method lineSearchMethod) {
+        this.lineSearchMethod = lineSearchMethod;
+    }
+    
+    /**@return Node counts from the coarsest level up to steps, halving the segment count between levels*/
+    private static List<Integer> levels(int steps) {
+        List<Integer> levels = new ArrayList<>();
+        for (int m = steps; ; m = (m + 1) / 2 - 1) {
+            levels.add(0, m);
+            if (m <= COARSE_STEPS) {
+                break;
             }
-            currT = start.getX() + i * delta;
-            nextT = currT + delta;
-            
-            if (i != steps + 1) {
-                currZ = (nextX - currX) / delta;
+        }
+        return levels;
+    }
+    
+    /**@return Solution points at the inner node times, including start and end*/
+    private List<PointDouble> solveLevel(Integrand function, PointDouble start, PointDouble end, double[] times, double[] in, TrajectorySink sink) {
+        DiscreteFunctional functional = new DiscreteFunctional(function, start, end, times);
+        SolverND solver = createSolver(functional);
+        solver.setFunction(functional);
+        //Iterates over thousands of nodes aren't read, keeping them would only grow the heap
+        solver.setHistory(null);
+        if (listener != null || sink != null) {
+            solver.setListener(e -> {
+                if (sink != null) {
+                    write(start, end, times, e.getPoint(), sink);
+                }
+                if (listener != null) {
+                    //The point is a copy owned by the event and times don't change, so the trajectory can be built later or never
+                    double[] point = e.getPoint();
+                    listener.progress(new ProgressEvent(iteration++, point, e.getValue(), getEvaluations(),
+                            () -> toInterpolator(start, end, times, point)));
+                }
+            });
+        }
+        //Published before checking the flag, so that cancel either sees this solver or the check sees the flag
+        current = solver;
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        metrics.increment(Counter.LEVELS);
+        long minimizationStart = System.nanoTime();
+        double[] result = solver.solve(in);
+        metrics.stop(Phase.MINIMIZATION, minimizationStart);
+        metrics.add(Counter.ITERATIONS, solver.getMetrics().get(Counter.ITERATIONS));
+        metrics.add(Counter.LINE_SEARCHES, solver.getMetrics().get(Counter.LINE_SEARCHES));
+        current = null;
+        return toPoints(start, end, times, result);
+    }
+    
+    private static List<PointDouble> toPoints(PointDouble start, PointDouble end, double[] times, double[] result) {
+        List<PointDouble> interpolationPoints = new ArrayList<>();
+        interpolationPoints.add(start);
+        for (int i = 0; i < result.length; i++) {
+            interpolationPoints.add(new PointDouble(times[i], result[i]));
+        }
+        interpolationPoints.add(end);
+        return interpolationPoints;
+    }
+    
+    /**Writes the iterate between the fixed end points as one trajectory*/
+    private static void write(PointDouble start, PointDouble end, double[] times, double[] result, TrajectorySink sink) {
+        sink.begin();
+        sink.node(start.getX(), start.getY());
+        for (int i = 0; i < result.length; i++) {
+            sink.node(times[i], result[i]);
+        }
+        sink.node(end.getX(), end.getY());
+        sink.end();
+    }
+    
+    private static Interpolator toInterpolator(PointDouble start, PointDouble end, double[] times, double[] result) {
+        int size = result.length + 2;
+        double[] t = new double[size];
+        double[] x = new double[size];
+        t[0] = start.getX();
+        x[0] = start.getY();
+        System.arraycopy(times, 0, t, 1, result.length);
+        System.arraycopy(result, 0, x, 1, result.length);
+        t[size - 1] = end.getX();
+        x[size - 1] = end.getY();
+        return new GridInterpolator(t, x);
+    }
+    
+    private static double[] uniformTimes(PointDouble start, PointDouble end, int count) {
+        double delta = (end.getX() - start.getX()) / (count + 1.0);
+        double[] times = new double[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = start.getX() + delta * (i + 1);
+        }
+        return times;
+    }
+    
+    /**@return Solution interpolated at the given times*/
+    private static double[] prolong(List<PointDouble> points, double[] times) {
+        double[] values = new double[times.length];
+        new GridInterpolator(points).evaluate(times, values);
+        return values;
+    }
+    
+    /**
+     * Splits the segments with the largest error estimates h^2 * |x''| / 8 above tolerance while the node budget allows,
+     * and removes inner nodes whose merged segment would stay below a fraction of it
+     * @return New inner node times, null if the mesh doesn't change
+     * */
+    private double[] adaptTimes(List<PointDouble> points) {
+        int size = points.size();
+        double[] curvature = new double[size];
+        for (int j = 1; j < size - 1; j++) {
+            double h0 = points.get(j).getX() - points.get(j - 1).getX();
+            double h1 = points.get(j + 1).getX() - points.get(j).getX();
+            double d0 = (points.get(j).getY() - points.get(j - 1).getY()) / h0;
+            double d1 = (points.get(j + 1).getY() - points.get(j).getY()) / h1;
+            curvature[j] = Math.abs(2 * (d1 - d0) / (h0 + h1));
+        }
+        if (size > 2) {
+            curvature[0] = curvature[1];
+            curvature[size - 1] = curvature[size - 2];
+        }
+        double[] error = new double[size - 1];
+        for (int i = 0; i < size - 1; i++) {
+            double h = points.get(i + 1).getX() - points.get(i).getX();
+            error[i] = h * h * Math.max(curvature[i], curvature[i + 1]) / 8;
+        }
+        
+        boolean[] removed = new boolean[size];
+        int kept = 0;
+        for (int j = 1; j < size - 1; j++) {
+            double h = points.get(j + 1).getX() - points.get(j - 1).getX();
+            double merged = h * h * Math.max(curvature[j], Math.max(curvature[j - 1], curvature[j + 1])) / 8;
+            removed[j] = !removed[j - 1] && merged < tolerance * COARSEN_RATIO;
+            if (!removed[j]) {
+                kept++;
             }
-            
-            if (i != steps + 1) {
-                currF = function.apply(Arrays.asList(currT, currX, currZ));
+        }
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < size - 1; i++) {
+            if (error[i] > tolerance) {
+                candidates.add(i);
             }
-            else {
-                currF = 0;
+        }
+        candidates.sort((a, b) -> Double.compare(error[b], error[a]));
+        boolean[] split = new boolean[size - 1];
+        int splits = Math.max(0, Math.min(candidates.size(), steps - kept));
+        for (int k = 0; k < splits; k++) {
+            split[candidates.get(k)] = true;
+        }
+        if (splits == 0 && kept == size - 2) {
+            return null;
+        }
+        
+        double[] times = new double[kept + splits];
+        int index = 0;
+        for (int i = 0; i < size - 1; i++) {
+            if (i > 0 && !removed[i]) {
+                times[index++] = points.get(i).getX();
             }
-            
-            if (i != 0) {
-                double area = ((currF + prevF) / 2.0) * delta;
-                
-                res += area;
+            if (split[i]) {
+                times[index++] = (points.get(i).getX() + points.get(i + 1).getX()) / 2;
             }
-            prevF = currF;
         }
-        /*prevF = function.apply(Arrays.asList(prevT, prevX, prevZ));
-        double area = ((prevPrevF + prevF) / 2.0) * delta;
-        res += area;*/
-        
-        return res;
+        return times;
+    }
+    
+    private SolverND createSolver(DiscreteFunctional functional) {
+        switch (method) {
+            case NEWTON:
+                TridiagonalNewtonSolver newtonSolver = new TridiagonalNewtonSolver();
+                newtonSolver.setHessian(functional);
+                return newtonSolver;
+            case LBFGS:
+                return new LbfgsSolver();
+            default:
+                GaussSeidelSolver gaussSeidelSolver = new GaussSeidelSolver(lineSearchMethod);
+                gaussSeidelSolver.setIncremental(functional);
+                return gaussSeidelSolver;
+        }
     }
 }
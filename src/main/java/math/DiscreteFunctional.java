@@ -0,0 +1,187 @@
+package math;
+
+/**
+ * Midpoint rule discretization of the functional over {@code steps} inner nodes between start and end,
+ * spaced uniformly or at given times. Each segment contributes its length times the integrand at its middle,
+ * with the mean of its end nodes and its slope, which stays second order accurate on non-uniform meshes.
+ * Node i only contributes through segments i - 1 and i, which lets the gradient be assembled locally
+ * from the integrand partials. Instances keep scratch buffers and aren't thread safe.
+ */
+public class DiscreteFunctional implements FunctionND, IncrementalFunction, TridiagonalHessian {
+    private static final double PARTIAL_STEP = 1e-6;
+    private static final double SECOND_PARTIAL_STEP = 1e-4;
+    
+    private final Integrand function;
+    private final PointDouble start;
+    private final PointDouble end;
+    private final int steps;
+    private final double delta;
+    private final double[] times;
+    private final double[] prevPartials = new double[3];
+    private final double[] currPartials = new double[3];
+    
+    public DiscreteFunctional(Integrand function, PointDouble start, PointDouble end, int steps) {
+        this.function = function;
+        this.start = start;
+        this.end = end;
+        this.steps = steps;
+        this.delta = (end.getX() - start.getX()) / (steps + 1.0);
+        this.times = new double[steps + 2];
+        for (int i = 0; i <= steps + 1; i++) {
+            times[i] = start.getX() + i * delta;
+        }
+        times[steps + 1] = end.getX();
+    }
+    
+    /**@param times Increasing times of the inner nodes, strictly between start and end*/
+    public DiscreteFunctional(Integrand function, PointDouble start, PointDouble end, double[] times) {
+        this.function = function;
+        this.start = start;
+        this.end = end;
+        this.steps = times.length;
+        this.delta = (end.getX() - start.getX()) / (steps + 1.0);
+        this.times = new double[steps + 2];
+        this.times[0] = start.getX();
+        System.arraycopy(times, 0, this.times, 1, steps);
+        this.times[steps + 1] = end.getX();
+        for (int i = 0; i <= steps; i++) {
+            if (!(this.times[i + 1] > this.times[i])) {
+                throw new IllegalArgumentException("Node times have to increase strictly between start and end");
+            }
+        }
+    }
+    
+    public int getSteps() {
+        return steps;
+    }
+    
+    /**@return Spacing of the uniform grid, the mean spacing for given node times*/
+    public double getDelta() {
+        return delta;
+    }
+    
+    @Override
+    public double apply(double[] values) {
+        double res = 0;
+        for (int i = 0; i <= steps; i++) {
+            res += step(i) * term(values, i);
+        }
+        return res;
+    }
+    
+    /**Gradient over the inner nodes, costs O(steps) integrand evaluations*/
+    @Override
+    public void gradient(double[] values, double[] out) {
+        double prevDx = partialX(values, 0);
+        double prevDz = partialZ(values, 0);
+        for (int k = 1; k <= steps; k++) {
+            double dx = partialX(values, k);
+            double dz = partialZ(values, k);
+            //Node k is the right end of segment k - 1 and the left end of segment k
+            out[k - 1] = step(k - 1) * prevDx / 2 + prevDz + step(k) * dx / 2 - dz;
+            prevDx = dx;
+            prevDz = dz;
+        }
+    }
+    
+    /**Tridiagonal Hessian over the inner nodes from the second integrand partials, costs O(steps) integrand evaluations*/
+    @Override
+    public void hessian(double[] values, double[] lower, double[] diagonal, double[] upper) {
+        double[] prev = secondPartials(values, 0, prevPartials);
+        double[] curr = currPartials;
+        for (int k = 1; k <= steps; k++) {
+            secondPartials(values, k, curr);
+            //prev and curr hold f_xx, f_xz, f_zz on segments k - 1 and k
+            double h = step(k);
+            double prevH = step(k - 1);
+            diagonal[k - 1] = prevH * (prev[0] / 4 + prev[1] / prevH + prev[2] / (prevH * prevH))
+                    + h * (curr[0] / 4 - curr[1] / h + curr[2] / (h * h));
+            double coupling = h * (curr[0] / 4 - curr[2] / (h * h));
+            if (k < steps) {
+                upper[k - 1] = coupling;
+                lower[k] = coupling;
+            }
+            double[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+    }
+    
+    /**@return Midpoint terms of the two segments around inner node index, costs two integrand evaluations*/
+    @Override
+    public double local(double[] values, int index, double value) {
+        int k = index + 1;
+        return step(k - 1) * term(values, k - 1, k, value) + step(k) * term(values, k, k, value);
+    }
+    
+    /**@return Value of node i, including the fixed boundary nodes 0 and steps + 1*/
+    double node(double[] values, int i) {
+        return i == 0 ? start.getY() : (i == steps + 1 ? end.getY() : values[i - 1]);
+    }
+    
+    double time(int i) {
+        return times[i];
+    }
+    
+    /**@return Length of segment i, between nodes i and i + 1*/
+    double step(int i) {
+        return times[i + 1] - times[i];
+    }
+    
+    /**@return Integrand at the midpoint of segment i*/
+    double term(double[] values, int i) {
+        return function.apply(middle(i), mean(values, i), slope(values, i));
+    }
+    
+    private double middle(int i) {
+        return (times[i] + times[i + 1]) / 2;
+    }
+    
+    private double mean(double[] values, int i) {
+        return (node(values, i) + node(values, i + 1)) / 2;
+    }
+    
+    private double slope(double[] values, int i) {
+        return (node(values, i + 1) - node(values, i)) / step(i);
+    }
+    
+    /**@return Integrand at the midpoint of segment i with node k moved to value*/
+    private double term(double[] values, int i, int k, double value) {
+        double x = i == k ? value : node(values, i);
+        double next = i + 1 == k ? value : node(values, i + 1);
+        return function.apply(middle(i), (x + next) / 2, (next - x) / step(i));
+    }
+    
+    private double partialX(double[] values, int i) {
+        double t = middle(i);
+        double x = mean(values, i);
+        double z = slope(values, i);
+        return (function.apply(t, x + PARTIAL_STEP, z) - function.apply(t, x - PARTIAL_STEP, z)) / (2 * PARTIAL_STEP);
+    }
+    
+    private double partialZ(double[] values, int i) {
+        double t = middle(i);
+        double x = mean(values, i);
+        double z = slope(values, i);
+        return (function.apply(t, x, z + PARTIAL_STEP) - function.apply(t, x, z - PARTIAL_STEP)) / (2 * PARTIAL_STEP);
+    }
+    
+    /**@return Second partials f_xx, f_xz, f_zz at the midpoint of segment i, written into out*/
+    private double[] secondPartials(double[] values, int i, double[] out) {
+        double t = middle(i);
+        double x = mean(values, i);
+        double z = slope(values, i);
+        //Steps scale with the arguments to keep the cancellation error bounded on steep slopes
+        double ex = SECOND_PARTIAL_STEP * Math.max(1, Math.abs(x));
+        double ez = SECOND_PARTIAL_STEP * Math.max(1, Math.abs(z));
+        double f = function.apply(t, x, z);
+        double xx = (function.apply(t, x + ex, z) - 2 * f + function.apply(t, x - ex, z)) / (ex * ex);
+        double zz = (function.apply(t, x, z + ez) - 2 * f + function.apply(t, x, z - ez)) / (ez * ez);
+        double xz = (function.apply(t, x + ex, z + ez) - function.apply(t, x + ex, z - ez)
+                - function.apply(t, x - ex, z + ez) + function.apply(t, x - ex, z - ez)) / (4 * ex * ez);
+        out[0] = xx;
+        out[1] = xz;
+        out[2] = zz;
+        return out;
+    }
+}
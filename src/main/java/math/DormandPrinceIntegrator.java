@@ -0,0 +1,139 @@
+package math;
+
+/**
+ * Adaptive Runge-Kutta 5(4) method of Dormand and Prince. The step size is chosen from the embedded error estimate,
+ * the trajectory is sampled inside every accepted step with the method's continuous extension.
+ */
+public class DormandPrinceIntegrator implements OdeIntegrator {
+    public static final double TOLERANCE = 1e-6;
+    private static final int DENSE_POINTS = 4;
+    private static final int STEPS_MAX = 100000;
+    private static final double SAFETY = 0.9;
+    private static final double SCALE_MIN = 0.2;
+    private static final double SCALE_MAX = 5;
+    
+    private static final double C2 = 1.0 / 5, C3 = 3.0 / 10, C4 = 4.0 / 5, C5 = 8.0 / 9;
+    private static final double A21 = 1.0 / 5;
+    private static final double A31 = 3.0 / 40, A32 = 9.0 / 40;
+    private static final double A41 = 44.0 / 45, A42 = -56.0 / 15, A43 = 32.0 / 9;
+    private static final double A51 = 19372.0 / 6561, A52 = -25360.0 / 2187, A53 = 64448.0 / 6561, A54 = -212.0 / 729;
+    private static final double A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247, A64 = 49.0 / 176, A65 = -5103.0 / 18656;
+    private static final double A71 = 35.0 / 384, A73 = 500.0 / 1113, A74 = 125.0 / 192, A75 = -2187.0 / 6784, A76 = 11.0 / 84;
+    private static final double E1 = 71.0 / 57600, E3 = -71.0 / 16695, E4 = 71.0 / 1920, E5 = -17253.0 / 339200, E6 = 22.0 / 525, E7 = -1.0 / 40;
+    private static final double D1 = -12715105075.0 / 11282082432.0, D3 = 87487479700.0 / 32700410799.0, D4 = -10690763975.0 / 1880347072.0,
+            D5 = 701980252875.0 / 199316789632.0, D6 = -1453857185.0 / 822651844.0, D7 = 69997945.0 / 29380423.0;
+    
+    private final double tolerance;
+    
+    public DormandPrinceIntegrator() {
+        this(TOLERANCE);
+    }
+    
+    /**@param tolerance Absolute and relative local error allowed per step*/
+    public DormandPrinceIntegrator(double tolerance) {
+        if (tolerance <= 0) {
+            throw new IllegalArgumentException("Tolerance has to be positive");
+        }
+        this.tolerance = tolerance;
+    }
+    
+    public double getTolerance() {
+        return tolerance;
+    }
+    
+    /**@throws ArithmeticException If t1 isn't reached within the step limit, as when the solution blows up*/
+    @Override
+    public double[] integrate(Integrand function, double t0, double x0, double z0, double t1, TrajectorySink nodes) {
+        double t = t0;
+        double x = x0;
+        double z = z0;
+        double length = t1 - t0;
+        double h = length / 100;
+        
+        //Stage derivatives: kx = z, kz = f(t, x, z), the last stage is reused as the first one of the next step
+        double kx1 = z;
+        double kz1 = function.apply(t, x, z);
+        
+        if (nodes != null) {
+            nodes.node(t, x);
+        }
+        
+        for (int i = 0; i < STEPS_MAX && (t1 - t) * Math.signum(length) > 0; i++) {
+            boolean last = (t + h - t1) * Math.signum(length) >= 0;
+            if (last) {
+                h = t1 - t;
+            }
+            
+            double x2 = x + h * A21 * kx1;
+            double z2 = z + h * A21 * kz1;
+            double kx2 = z2;
+            double kz2 = function.apply(t + C2 * h, x2, z2);
+            
+            double x3 = x + h * (A31 * kx1 + A32 * kx2);
+            double z3 = z + h * (A31 * kz1 + A32 * kz2);
+            double kx3 = z3;
+            double kz3 = function.apply(t + C3 * h, x3, z3);
+            
+            double x4 = x + h * (A41 * kx1 + A42 * kx2 + A43 * kx3);
+            double z4 = z + h * (A41 * kz1 + A42 * kz2 + A43 * kz3);
+            double kx4 = z4;
+            double kz4 = function.apply(t + C4 * h, x4, z4);
+            
+            double x5 = x + h * (A51 * kx1 + A52 * kx2 + A53 * kx3 + A54 * kx4);
+            double z5 = z + h * (A51 * kz1 + A52 * kz2 + A53 * kz3 + A54 * kz4);
+            double kx5 = z5;
+            double kz5 = function.apply(t + C5 * h, x5, z5);
+            
+            double x6 = x + h * (A61 * kx1 + A62 * kx2 + A63 * kx3 + A64 * kx4 + A65 * kx5);
+            double z6 = z + h * (A61 * kz1 + A62 * kz2 + A63 * kz3 + A64 * kz4 + A65 * kz5);
+            double kx6 = z6;
+            double kz6 = function.apply(t + h, x6, z6);
+            
+            double nextX = x + h * (A71 * kx1 + A73 * kx3 + A74 * kx4 + A75 * kx5 + A76 * kx6);
+            double nextZ = z + h * (A71 * kz1 + A73 * kz3 + A74 * kz4 + A75 * kz5 + A76 * kz6);
+            double kx7 = nextZ;
+            double kz7 = function.apply(t + h, nextX, nextZ);
+            
+            double errX = h * (E1 * kx1 + E3 * kx3 + E4 * kx4 + E5 * kx5 + E6 * kx6 + E7 * kx7);
+            double errZ = h * (E1 * kz1 + E3 * kz3 + E4 * kz4 + E5 * kz5 + E6 * kz6 + E7 * kz7);
+            errX /= tolerance + tolerance * Math.max(Math.abs(x), Math.abs(nextX));
+            errZ /= tolerance + tolerance * Math.max(Math.abs(z), Math.abs(nextZ));
+            double err = Math.sqrt((errX * errX + errZ * errZ) / 2);
+            
+            if (Double.isNaN(err)) {
+                h /= 2;
+                continue;
+            }
+            double scale = err == 0 ? SCALE_MAX : Math.min(SCALE_MAX, Math.max(SCALE_MIN, SAFETY * Math.pow(err, -0.2)));
+            if (err > 1) {
+                h *= Math.min(1, scale);
+                continue;
+            }
+            
+            if (nodes != null) {
+                //Continuous extension of x over the accepted step
+                double diff = nextX - x;
+                double bspl = h * kx1 - diff;
+                double r4 = diff - h * kx7 - bspl;
+                double r5 = h * (D1 * kx1 + D3 * kx3 + D4 * kx4 + D5 * kx5 + D6 * kx6 + D7 * kx7);
+                for (int j = 1; j < DENSE_POINTS; j++) {
+                    double theta = j / (double)DENSE_POINTS;
+                    double theta1 = 1 - theta;
+                    nodes.node(t + theta * h, x + theta * (diff + theta1 * (bspl + theta * (r4 + theta1 * r5))));
+                }
+                nodes.node(t + h, nextX);
+            }
+            
+            t = last ? t1 : t + h;
+            x = nextX;
+            z = nextZ;
+            kx1 = kx7;
+            kz1 = kz7;
+            h *= scale;
+        }
+        if ((t1 - t) * Math.signum(length) > 0) {
+            throw new ArithmeticException("Integration stopped at t = " + t + " short of " + t1 + " after " + STEPS_MAX + " steps");
+        }
+        return new double[] {x, z};
+    }
+}
@@ -0,0 +1,45 @@
+package math;
+
+/**Explicit Euler method with a fixed number of steps*/
+public class EulerIntegrator implements OdeIntegrator {
+    private final int steps;
+    
+    public EulerIntegrator(int steps) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("Step count has to be positive");
+        }
+        this.steps = steps;
+    }
+    
+    public int getSteps() {
+        return steps;
+    }
+    
+    @Override
+    public double[] integrate(Integrand function, double t0, double x0, double z0, double t1, TrajectorySink nodes) {
+        double deltaT = (t1 - t0) / (double)steps;
+        double currT = t0;
+        double currX = x0;
+        double currZ = z0;
+        double nextX;
+        double nextZ;
+        
+        for (int i = 0; i <= steps; i++) {
+            if (nodes != null) {
+                nodes.node(currT, currX);
+            }
+            
+            if (i == steps) {
+                break;
+            }
+            
+            nextX = currX + currZ * deltaT;
+            nextZ = currZ + function.apply(currT, currX, currZ) * deltaT;
+            
+            currT += deltaT;
+            currX = nextX;
+            currZ = nextZ;
+        }
+        return new double[] {currX, currZ};
+    }
+}
@@ -0,0 +1,168 @@
+package math;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Bounded memo of function values keyed on the exact bit patterns of the arguments.
+ * The least recently used entry is evicted once the capacity is reached. Lookups that hit don't allocate.
+ * Instances aren't thread safe.
+ */
+public class EvaluationCache {
+    public static final int CAPACITY = 1024;
+    
+    private final int capacity;
+    private final Map<Key, Double> values;
+    private final Key probe = new Key();
+    private final double[] single = new double[1];
+    private long hits;
+    private long misses;
+    
+    public EvaluationCache() {
+        this(CAPACITY);
+    }
+    
+    public EvaluationCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity has to be positive");
+        }
+        this.capacity = capacity;
+        this.values = new LinkedHashMap<Key, Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+                return size() > EvaluationCache.this.capacity;
+            }
+        };
+    }
+    
+    /**@return f(x), evaluated only if x isn't cached*/
+    public double apply(double x, DoubleUnaryOperator f) {
+        single[0] = x;
+        Double value = lookup(single);
+        if (value != null) {
+            return value;
+        }
+        double res = f.applyAsDouble(x);
+        single[0] = x;
+        store(single, res);
+        return res;
+    }
+    
+    /**@return f(point), evaluated only if point isn't cached*/
+    public double apply(double[] point, FunctionND f) {
+        Double value = lookup(point);
+        if (value != null) {
+            return value;
+        }
+        double res = f.apply(point);
+        store(point, res);
+        return res;
+    }
+    
+    /**@return f evaluated through this cache*/
+    public DoubleUnaryOperator wrapScalar(DoubleUnaryOperator f) {
+        return x -> apply(x, f);
+    }
+    
+    /**@return f evaluated through this cache, the gradient is left to f*/
+    public FunctionND wrap(FunctionND f) {
+        return new FunctionND() {
+            @Override
+            public double apply(double[] point) {
+                return EvaluationCache.this.apply(point, f);
+            }
+            
+            @Override
+            public void gradient(double[] point, double[] out) {
+                f.gradient(point, out);
+            }
+        };
+    }
+    
+    /**Drops all entries and resets the statistics*/
+    public void clear() {
+        values.clear();
+        hits = 0;
+        misses = 0;
+    }
+    
+    public int size() {
+        return values.size();
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    /**@return Share of lookups answered from the cache, 0 if there were none*/
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : hits / (double) total;
+    }
+    
+    private Double lookup(double[] point) {
+        probe.point = point;
+        probe.hash = hash(point);
+        Double value = values.get(probe);
+        probe.point = null;
+        if (value != null) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        return value;
+    }
+    
+    private void store(double[] point, double value) {
+        Key key = new Key();
+        key.point = point.clone();
+        key.hash = hash(point);
+        values.put(key, value);
+    }
+    
+    private static int hash(double[] point) {
+        int res = 1;
+        for (double v : point) {
+            long bits = Double.doubleToRawLongBits(v);
+            res = 31 * res + (int) (bits ^ (bits >>> 32));
+        }
+        return res;
+    }
+    
+    private static class Key {
+        private double[] point;
+        private int hash;
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            double[] other = ((Key) obj).point;
+            if (other.length != point.length) {
+                return false;
+            }
+            for (int i = 0; i < point.length; i++) {
+                if (Double.doubleToRawLongBits(other[i]) != Double.doubleToRawLongBits(point[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a function definition of the form {@code f(t, x, z) = expression} into a tree of primitive
+ * {@link Integrand} nodes. Supports numbers, the three arguments, {@code pi}, {@code e}, {@code + - * /},
+ * unary minus, {@code ^} with a constant integer exponent, parentheses and
+ * {@code sin, cos, tan, exp, ln, sqrt, abs}.
+ * Anything else is rejected, so the caller can fall back to the interpreting parser.
+ */
+public abstract class ExpressionCompiler {
+    
+    /**
+     * @param definition Function definition, e.g. {@code f(t, x, z) = (1+z^2)/(2*x)}
+     * @return Compiled integrand, null if the definition uses anything that isn't supported
+     */
+    public static Integrand compile(String definition) {
+        try {
+            int eq = definition.indexOf('=');
+            if (eq < 0) {
+                return null;
+            }
+            List<String> args = parseHeader(definition.substring(0, eq));
+            if (args == null || args.size() != 3) {
+                return null;
+            }
+            Parser parser = new Parser(definition.substring(eq + 1), args);
+            Integrand res = parser.parseSum();
+            parser.skipSpaces();
+            if (!parser.atEnd()) {
+                return null;
+            }
+            return res;
+        }
+        catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+    
+    private static List<String> parseHeader(String header) {
+        header = header.trim();
+        int open = header.indexOf('(');
+        int close = header.lastIndexOf(')');
+        if (open <= 0 || close != header.length() - 1) {
+            return null;
+        }
+        List<String> args = new ArrayList<>();
+        for (String arg : header.substring(open + 1, close).split(",")) {
+            arg = arg.trim();
+            if (arg.isEmpty() || !isName(arg)) {
+                return null;
+            }
+            args.add(arg);
+        }
+        return args;
+    }
+    
+    private static boolean isName(String s) {
+        if (!Character.isLetter(s.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < s.length(); i++) {
+            if (!Character.isLetterOrDigit(s.charAt(i)) && s.charAt(i) != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static final class Const implements Integrand {
+        private final double value;
+        
+        private Const(double value) {
+            this.value = value;
+        }
+        
+        @Override
+        public double apply(double t, double x, double z) {
+            return value;
+        }
+    }
+    
+    private static final class Parser {
+        private final String text;
+        private final List<String> args;
+        private int pos = 0;
+        
+        private Parser(String text, List<String> args) {
+            this.text = text;
+            this.args = args;
+        }
+        
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private boolean atEnd() {
+            return pos >= text.length();
+        }
+        
+        private boolean accept(char c) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+        
+        private Integrand parseSum() {
+            Integrand res = parseProduct();
+            while (true) {
+                if (accept('+')) {
+                    res = add(res, parseProduct());
+                }
+                else if (accept('-')) {
+                    res = subtract(res, parseProduct());
+                }
+                else {
+                    return res;
+                }
+            }
+        }
+        
+        private Integrand parseProduct() {
+            Integrand res = parseUnary();
+            while (true) {
+                if (accept('*')) {
+                    res = multiply(res, parseUnary());
+                }
+                else if (accept('/')) {
+                    res = divide(res, parseUnary());
+                }
+                else {
+                    return res;
+                }
+            }
+        }
+        
+        private Integrand parseUnary() {
+            if (accept('-')) {
+                return negate(parseUnary());
+            }
+            if (accept('+')) {
+                return parseUnary();
+            }
+            return parsePower();
+        }
+        
+        private Integrand parsePower() {
+            Integrand base = parseAtom();
+            if (accept('^')) {
+                Integrand exponent = parseUnary();
+                if (!(exponent instanceof Const)) {
+                    throw new UnsupportedOperationException();
+                }
+                double p = ((Const) exponent).value;
+                if (p != Math.rint(p)) {
+                    throw new UnsupportedOperationException();
+                }
+                return power(base, p);
+            }
+            return base;
+        }
+        
+        private Integrand parseAtom() {
+            skipSpaces();
+            if (atEnd()) {
+                throw new UnsupportedOperationException();
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                Integrand res = parseSum();
+                if (!accept(')')) {
+                    throw new UnsupportedOperationException();
+                }
+                return res;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return new Const(parseNumber());
+            }
+            if (Character.isLetter(c)) {
+                int begin = pos;
+                while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                    pos++;
+                }
+                String name = text.substring(begin, pos);
+                int index = args.indexOf(name);
+                if (index >= 0) {
+                    return argument(index);
+                }
+                if (accept('(')) {
+                    Integrand arg = parseSum();
+                    if (!accept(')')) {
+                        throw new UnsupportedOperationException();
+                    }
+                    return function(name, arg);
+                }
+                switch (name) {
+                    case "pi":
+                        return new Const(Math.PI);
+                    case "e":
+                        return new Const(Math.E);
+                    default:
+                        throw new UnsupportedOperationException();
+                }
+            }
+            throw new UnsupportedOperationException();
+        }
+        
+        private double parseNumber() {
+            int begin = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (pos + 1 < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                int exp = pos + 1;
+                if (exp < text.length() && (text.charAt(exp) == '+' || text.charAt(exp) == '-')) {
+                    exp++;
+                }
+                if (exp < text.length() && Character.isDigit(text.charAt(exp))) {
+                    pos = exp;
+                    while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                        pos++;
+                    }
+                }
+            }
+            try {
+                return Double.parseDouble(text.substring(begin, pos));
+            }
+            catch (NumberFormatException e) {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+    
+    private static Integrand argument(int index) {
+        switch (index) {
+            case 0:
+                return (t, x, z) -> t;
+            case 1:
+                return (t, x, z) -> x;
+            default:
+                return (t, x, z) -> z;
+        }
+    }
+    
+    private static Integrand function(String name, Integrand a) {
+        switch (name) {
+            case "sin":
+                return fold(a, (t, x, z) -> Math.sin(a.apply(t, x, z)));
+            case "cos":
+                return fold(a, (t, x, z) -> Math.cos(a.apply(t, x, z)));
+            case "tan":
+                return fold(a, (t, x, z) -> Math.tan(a.apply(t, x, z)));
+            case "exp":
+                return fold(a, (t, x, z) -> Math.exp(a.apply(t, x, z)));
+            case "ln":
+                return fold(a, (t, x, z) -> Math.log(a.apply(t, x, z)));
+            case "sqrt":
+                return fold(a, (t, x, z) -> Math.sqrt(a.apply(t, x, z)));
+            case "abs":
+                return fold(a, (t, x, z) -> Math.abs(a.apply(t, x, z)));
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+    
+    private static Integrand negate(Integrand a) {
+        return fold(a, (t, x, z) -> -a.apply(t, x, z));
+    }
+    
+    private static Integrand add(Integrand a, Integrand b) {
+        return fold(a, b, (t, x, z) -> a.apply(t, x, z) + b.apply(t, x, z));
+    }
+    
+    private static Integrand subtract(Integrand a, Integrand b) {
+        return fold(a, b, (t, x, z) -> a.apply(t, x, z) - b.apply(t, x, z));
+    }
+    
+    private static Integrand multiply(Integrand a, Integrand b) {
+        return fold(a, b, (t, x, z) -> a.apply(t, x, z) * b.apply(t, x, z));
+    }
+    
+    private static Integrand divide(Integrand a, Integrand b) {
+        //Same as the parser: division by zero is undefined
+        return fold(a, b, (t, x, z) -> {
+            double d = b.apply(t, x, z);
+            return d == 0 ? Double.NaN : a.apply(t, x, z) / d;
+        });
+    }
+    
+    private static Integrand power(Integrand a, double p) {
+        if (p == 1) {
+            return a;
+        }
+        if (p == 2) {
+            return fold(a, (t, x, z) -> {
+                double v = a.apply(t, x, z);
+                return v * v;
+            });
+        }
+        return fold(a, (t, x, z) -> Math.pow(a.apply(t, x, z), p));
+    }
+    
+    private static Integrand fold(Integrand a, Integrand node) {
+        return a instanceof Const ? new Const(node.apply(0, 0, 0)) : node;
+    }
+    
+    private static Integrand fold(Integrand a, Integrand b, Integrand node) {
+        return a instanceof Const && b instanceof Const ? new Const(node.apply(0, 0, 0)) : node;
+    }
+}
@@ -0,0 +1,28 @@
+package math;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**Function of many variables over primitive arrays*/
+public interface FunctionND {
+    double apply(double[] point);
+    
+    /**
+     * Fills out with the gradient at point, forward differences by default.
+     * The point is shifted in place and restored, so nothing is allocated.
+     * */
+    default void gradient(double[] point, double[] out) {
+        double value = apply(point);
+        for (int i = 0; i < point.length; i++) {
+            double x = point[i];
+            point[i] = x + SolverND.EPSILON;
+            out[i] = (apply(point) - value) / SolverND.EPSILON;
+            point[i] = x;
+        }
+    }
+    
+    /**Adapts a function taking its arguments as a list*/
+    static FunctionND of(Function<List<Double>, Double> f) {
+        return point -> f.apply(SolverUtils.toList(point));
+    }
+}
@@ -1,53 +1,85 @@
 package math;
 
-import java.util.ArrayList;
-import java.util.List;
+import metrics.Counter;
+import trace.Level;
+import trace.TraceEvent;
+import trace.Tracer;
+
+import java.util.function.DoubleUnaryOperator;
 
 public class GaussSeidelSolver extends SolverND {
     private static final int I_MAX = 256;
+    private static final TraceEvent SWEEP = new TraceEvent("sweep", "begin[]", "step");
+    private IncrementalFunction incremental;
+    private final LineSearch lineSearch;
+    private double[] point;
+    private int index;
+    //Counted like evaluations of f, though each only costs the few terms around the coordinate and skips the cache
+    private final DoubleUnaryOperator coordinate = v -> {
+        getMetrics().increment(Counter.EVALUATIONS);
+        return incremental.local(point, index, v);
+    };
     
-    @Override
-    protected List<Double> solveInternal(List<Double> data) {
+    /**Searches lines with {@link SolverUtils#LINE_SEARCH}*/
+    public GaussSeidelSolver() {
+        this(SolverUtils.LINE_SEARCH);
+    }
     
-        double axisScale = 1;
-        List<Double> startPoint = data;
-        int size = startPoint.size();
+    public GaussSeidelSolver(LineSearch.Method lineSearchMethod) {
+        lineSearch = new LineSearch(lineSearchMethod);
+    }
+    
+    public IncrementalFunction getIncremental() {
+        return incremental;
+    }
+    
+    /**Sets a local form of f, so that each coordinate search only evaluates the terms it changes*/
+    public void setIncremental(IncrementalFunction incremental) {
+        this.incremental = incremental;
+    }
     
-        List<Double> prev = new ArrayList<>(startPoint);
-        List<Double> curr = new ArrayList<>(startPoint);
+    @Override
+    protected double[] solveInternal(double[] data) {
+        
+        double axisScale = 1;
+        int size = data.length;
+        
+        double[] prev = new double[size];
+        double[] curr = data;
+        double[] axis = new double[size];
+        point = curr;
+        lineSearch.setMetrics(getMetrics());
         int i = 0;
         boolean cont = true;
         
         while(!(i > I_MAX || !cont)) {
-            prev = curr;
-            List<Double> res;
+            System.arraycopy(curr, 0, prev, 0, size);
             
-            //addToLog(i + ") Begin: " + new PointDouble(currX, currY).toString(PRECISION));
-    
             for (int j = 0; j < size; j++) {
-                List<Double> axis = new ArrayList<>();
-                for (int k = 0; k < size; k++) {
-                    axis.add(j == k ? axisScale : 0);
+                if (incremental != null) {
+                    index = j;
+                    curr[j] = lineSearch.findMin(coordinate, axisScale, curr[j]);
+                    continue;
                 }
-                res = SolverUtils.findMinOnAxis(getF(), axis, curr);
-                curr = new ArrayList<>(res);
+                axis[j] = axisScale;
+                lineSearch.findMinOnAxis(getObjective(), axis, curr, curr);
+                axis[j] = 0;
             }
             
-            i++;
             double val = 0;
             for (int j = 0; j < size; j++) {
-                val += Math.pow(curr.get(j) - prev.get(j), 2);
+                val += Math.pow(curr[j] - prev[j], 2);
             }
             val = Math.sqrt(val);
+            Tracer tracer = getTracer();
+            if (tracer.begin(Level.DEBUG, SWEEP, i)) {
+                tracer.add(prev).add(val).emit();
+            }
+            progress(i, curr);
+            i++;
             cont = val > EPSILON;
         }
-    
+        
         return curr;
     }
-    
-    @Override
-    protected int getLogBatchSize() {
-        return 1;
-    }
-    
 }
@@ -1,13 +1,15 @@
 package math;
 
-import java.util.function.Function;
+import trace.Level;
+import trace.TraceEvent;
+import trace.Tracer;
 
 public class GoldenRatioSolver extends Solver1D {
     private static final Double RATIO = (3 - Math.sqrt(5)) / 2;
+    private static final TraceEvent STEP = new TraceEvent("step", "a", "b", "x1", "x2", "y1", "y2");
     
     @Override
     public PointDouble solveInternal(double lower, double upper) {
-        Function<Double, Double> f = getF();
         double a = lower;
         double b = upper;
         double x1;
@@ -17,23 +19,17 @@ public class GoldenRatioSolver extends Solver1D {
         boolean upperCalculated;
         
         int lim = (int)Math.round(-Math.log((upper - lower) / EPSILON) / Math.log(1 - RATIO));
-    
+        
         //First iteration
         x1 = a + RATIO * (b - a);
         x2 = b - RATIO * (b - a);
-        y1 = f.apply(x1);
-        y2 = f.apply(x2);
-    
-        addToLog("0:");
-        addToLog("a = " + a);
-        addToLog("b = " + b);
-        addToLog("x1 = " + x1);
-        addToLog("x2 = " + x2);
-        addToLog("y1 = " + y1);
-        addToLog("y2 = " + y2);
-        addPoint(new PointDouble(x1, y1));
-        addPoint(new PointDouble(x2, y2));
-    
+        y1 = apply(x1);
+        y2 = apply(x2);
+        
+        trace(0, a, b, x1, x2, y1, y2);
+        addPoint(x1, y1);
+        addPoint(x2, y2);
+        
         if (y1 > y2) {
             a = x1;
             x1 = x2;
@@ -50,23 +46,17 @@ public class GoldenRatioSolver extends Solver1D {
         for (int i = 1; i < lim ; i++) {
             if (upperCalculated) {
                 x1 = a + RATIO * (b - a);
-                y1 = f.apply(x1);
+                y1 = apply(x1);
             }
             else {
                 x2 = b - RATIO * (b - a);
-                y2 = f.apply(x2);
+                y2 = apply(x2);
             }
             
-            addToLog(i + ":");
-            addToLog("a = " + a);
-            addToLog("b = " + b);
-            addToLog("x1 = " + x1);
-            addToLog("x2 = " + x2);
-            addToLog("y1 = " + y1);
-            addToLog("y2 = " + y2);
-            addPoint(new PointDouble(x1, y1));
-            addPoint(new PointDouble(x2, y2));
-    
+            trace(i, a, b, x1, x2, y1, y2);
+            addPoint(x1, y1);
+            addPoint(x2, y2);
+            
             if (y1 > y2) {
                 a = x1;
                 x1 = x2;
@@ -80,12 +70,14 @@ public class GoldenRatioSolver extends Solver1D {
                 upperCalculated = true;
             }
         }
-    
-        return new PointDouble((b + a) / 2, f.apply((b + a) / 2));
+        
+        return new PointDouble((b + a) / 2, apply((b + a) / 2));
     }
     
-    @Override
-    protected int getLogBatchSize() {
-        return 7;
+    private void trace(int iteration, double a, double b, double x1, double x2, double y1, double y2) {
+        Tracer tracer = getTracer();
+        if (tracer.begin(Level.DEBUG, STEP, iteration)) {
+            tracer.add(a).add(b).add(x1).add(x2).add(y1).add(y2).emit();
+        }
     }
 }
@@ -0,0 +1,188 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Piecewise linear interpolation over primitive arrays, extrapolating linearly past the ends like {@link LinearInterpolator}.
+ * When the nodes are evenly spaced the segment is found by index arithmetic, otherwise by binary search.
+ * Range of values is computed once.
+ */
+public class GridInterpolator implements Interpolator {
+    //Relative deviation from the even spacing still treated as a uniform grid
+    private static final double UNIFORM_TOLERANCE = 1e-9;
+    
+    private final double[] times;
+    private final double[] values;
+    private final boolean uniform;
+    private final double inverseStep;
+    private final double lowerVal;
+    private final double upperVal;
+    
+    public GridInterpolator(List<PointDouble> points) {
+        this(columns(points));
+    }
+    
+    private GridInterpolator(double[][] columns) {
+        this(columns[0], columns[1], false);
+    }
+    
+    /**@param times Increasing node times, copied along with values*/
+    public GridInterpolator(double[] times, double[] values) {
+        this(times.clone(), values.clone(), false);
+    }
+    
+    /**Evenly spaced nodes from lower to upper, values are copied*/
+    public GridInterpolator(double lower, double upper, double[] values) {
+        this(uniformTimes(lower, upper, values.length), values.clone(), true);
+    }
+    
+    /**Takes the first size nodes of the arrays, copying them once*/
+    static GridInterpolator trimmed(double[] times, double[] values, int size) {
+        return new GridInterpolator(Arrays.copyOf(times, size), Arrays.copyOf(values, size), false);
+    }
+    
+    private GridInterpolator(double[] times, double[] values, boolean uniform) {
+        if (times.length != values.length) {
+            throw new IllegalArgumentException("Times and values have to be of the same length");
+        }
+        this.times = times;
+        this.values = values;
+        this.uniform = uniform || isUniform(times);
+        this.inverseStep = times.length > 1 ? (times.length - 1) / (times[times.length - 1] - times[0]) : 0;
+        double min = values.length == 0 ? 0 : values[0];
+        double max = min;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        this.lowerVal = min;
+        this.upperVal = max;
+    }
+    
+    public int size() {
+        return times.length;
+    }
+    
+    /**@return Whether the segments are found by index arithmetic*/
+    public boolean isUniform() {
+        return uniform;
+    }
+    
+    public double getTime(int index) {
+        return times[index];
+    }
+    
+    public double getValue(int index) {
+        return values[index];
+    }
+    
+    @Override
+    public double lower() {
+        return times[0];
+    }
+    
+    @Override
+    public double upper() {
+        return times[times.length - 1];
+    }
+    
+    @Override
+    public double lowerVal() {
+        return lowerVal;
+    }
+    
+    @Override
+    public double upperVal() {
+        return upperVal;
+    }
+    
+    @Override
+    public double evaluate(double value) {
+        if (times.length < 2) {
+            return times.length == 0 ? 0 : values[0];
+        }
+        return interpolate(segment(value), value);
+    }
+    
+    /**Consecutive arguments in the same segment, such as increasing ones, skip the lookup*/
+    @Override
+    public void evaluate(double[] arguments, double[] out) {
+        if (times.length < 2) {
+            Arrays.fill(out, 0, arguments.length, times.length == 0 ? 0 : values[0]);
+            return;
+        }
+        int last = times.length - 2;
+        int i = 0;
+        for (int j = 0; j < arguments.length; j++) {
+            double value = arguments[j];
+            if (!((i == 0 || value >= times[i]) && (i == last || value <= times[i + 1]))) {
+                i = segment(value);
+            }
+            out[j] = interpolate(i, value);
+        }
+    }
+    
+    /**@return Index of the first node of the segment containing value, the outer segments extend past the ends*/
+    private int segment(double value) {
+        int last = times.length - 2;
+        if (uniform) {
+            double index = (value - times[0]) * inverseStep;
+            int i = index <= 0 ? 0 : index >= last ? last : (int) index;
+            //Stored times may differ from the even spacing by rounding
+            if (i > 0 && value < times[i]) {
+                i--;
+            }
+            else if (i < last && value > times[i + 1]) {
+                i++;
+            }
+            return i;
+        }
+        int i = Arrays.binarySearch(times, value);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return Math.max(0, Math.min(last, i));
+    }
+    
+    private double interpolate(int i, double value) {
+        double alpha = (value - times[i]) / (times[i + 1] - times[i]);
+        return alpha * values[i + 1] + (1 - alpha) * values[i];
+    }
+    
+    private static boolean isUniform(double[] times) {
+        int size = times.length;
+        if (size < 3) {
+            return true;
+        }
+        double step = (times[size - 1] - times[0]) / (size - 1);
+        for (int i = 1; i < size - 1; i++) {
+            if (Math.abs(times[i] - (times[0] + i * step)) > UNIFORM_TOLERANCE * Math.abs(step)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static double[] uniformTimes(double lower, double upper, int size) {
+        double[] times = new double[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = size == 1 ? lower : lower + (upper - lower) * i / (size - 1);
+        }
+        return times;
+    }
+    
+    /**@return Times and values of the points sorted by time*/
+    private static double[][] columns(List<PointDouble> points) {
+        List<PointDouble> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparing(PointDouble::getX));
+        double[][] columns = new double[2][sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            columns[0][i] = sorted.get(i).getX();
+            columns[1][i] = sorted.get(i).getY();
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,7 @@
+package math;
+
+/**Function of many variables where each coordinate only affects a few local terms*/
+public interface IncrementalFunction {
+    /**@return Sum of the terms that depend on coordinate index, with that coordinate set to value*/
+    double local(double[] point, int index, double value);
+}
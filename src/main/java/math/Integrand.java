@@ -0,0 +1,14 @@
+package math;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+public interface Integrand {
+    double apply(double t, double x, double z);
+    
+    /**Adapts a function taking (t, x, z) as a list*/
+    static Integrand of(Function<List<Double>, Double> function) {
+        return (t, x, z) -> function.apply(Arrays.asList(t, x, z));
+    }
+}
@@ -6,4 +6,11 @@ public interface Interpolator {
     double lowerVal();
     double upperVal();
     double evaluate(double value) throws InterpolationException;
+    
+    /**Fills out with the values at each of the arguments*/
+    default void evaluate(double[] arguments, double[] out) throws InterpolationException {
+        for (int i = 0; i < arguments.length; i++) {
+            out[i] = evaluate(arguments[i]);
+        }
+    }
 }
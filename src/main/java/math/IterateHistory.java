@@ -0,0 +1,18 @@
+package math;
+
+import java.util.List;
+
+/**
+ * Keeps the iterates a solver passes to addPoint. Implementations decide how many are kept,
+ * a solver without a history records nothing.
+ */
+public interface IterateHistory {
+    /**Drops the iterates of the previous solve, called when a solve starts*/
+    void clear();
+    
+    /**@param point Owned by the caller, copied if it's kept*/
+    void add(double[] point);
+    
+    /**@return Copies of the kept iterates in the order they were added*/
+    List<double[]> getPoints();
+}
@@ -0,0 +1,237 @@
+package math;
+
+import trace.Level;
+import trace.TraceEvent;
+import trace.Tracer;
+
+/**
+ * Limited-memory BFGS. The last {@code memory} steps and gradient changes are kept in ring buffers
+ * and the step length is chosen by a line search satisfying the strong Wolfe conditions.
+ */
+public class LbfgsSolver extends SolverND {
+    public static final int MEMORY = 8;
+    private static final int I_MAX = 1000;
+    private static final int LINE_SEARCH_MAX = 32;
+    private static final double C1 = 1e-4;
+    private static final double C2 = 0.9;
+    private static final double GRADIENT_TOLERANCE = 1e-9;
+    private static final TraceEvent STEP = new TraceEvent("step", "value", "step length");
+    
+    private final int memory;
+    
+    //Scratch state of the current solve
+    private int size;
+    private double[] x;
+    private double[] trial;
+    private double[] trialGrad;
+    private double trialValue;
+    
+    public LbfgsSolver() {
+        this(MEMORY);
+    }
+    
+    /**@param memory Number of correction pairs kept for the Hessian approximation*/
+    public LbfgsSolver(int memory) {
+        if (memory < 1) {
+            throw new IllegalArgumentException("Memory depth has to be positive");
+        }
+        this.memory = memory;
+    }
+    
+    public int getMemory() {
+        return memory;
+    }
+    
+    @Override
+    protected double[] solveInternal(double[] data) {
+        size = data.length;
+        x = data;
+        trial = new double[size];
+        trialGrad = new double[size];
+        double[] grad = new double[size];
+        double[] d = new double[size];
+        double[][] s = new double[memory][size];
+        double[][] y = new double[memory][size];
+        double[] rho = new double[memory];
+        double[] a = new double[memory];
+        int stored = 0;
+        int newest = -1;
+        
+        double value = evaluate(x, grad);
+        addPoint(x);
+        
+        int i = 0;
+        while (i < I_MAX && maxNorm(grad) > GRADIENT_TOLERANCE) {
+            //Two-loop recursion for d = -H * grad
+            for (int j = 0; j < size; j++) {
+                d[j] = -grad[j];
+            }
+            for (int m = 0; m < stored; m++) {
+                int k = Math.floorMod(newest - m, memory);
+                a[k] = rho[k] * dot(s[k], d);
+                axpy(-a[k], y[k], d);
+            }
+            double gamma = stored > 0 ? dot(s[newest], y[newest]) / dot(y[newest], y[newest]) : 1 / Math.sqrt(dot(grad, grad));
+            for (int j = 0; j < size; j++) {
+                d[j] *= gamma;
+            }
+            for (int m = stored - 1; m >= 0; m--) {
+                int k = Math.floorMod(newest - m, memory);
+                double b = rho[k] * dot(y[k], d);
+                axpy(a[k] - b, s[k], d);
+            }
+            double slope = dot(grad, d);
+            if (!(slope < 0)) {
+                //Not a descent direction, restart from steepest descent
+                stored = 0;
+                double norm = Math.sqrt(dot(grad, grad));
+                for (int j = 0; j < size; j++) {
+                    d[j] = -grad[j] / norm;
+                }
+                slope = dot(grad, d);
+            }
+            
+            double alpha = lineSearch(value, slope, d);
+            if (alpha == 0) {
+                break;
+            }
+            
+            newest = (newest + 1) % memory;
+            stored = Math.min(stored + 1, memory);
+            double step = 0;
+            for (int j = 0; j < size; j++) {
+                s[newest][j] = trial[j] - x[j];
+                y[newest][j] = trialGrad[j] - grad[j];
+                step += s[newest][j] * s[newest][j];
+            }
+            double sy = dot(s[newest], y[newest]);
+            if (sy > 0) {
+                rho[newest] = 1 / sy;
+            }
+            else {
+                //Curvature condition failed, drop the pair
+                newest = Math.floorMod(newest - 1, memory);
+                stored--;
+            }
+            System.arraycopy(trial, 0, x, 0, size);
+            System.arraycopy(trialGrad, 0, grad, 0, size);
+            value = trialValue;
+            
+            addPoint(x);
+            Tracer tracer = getTracer();
+            if (tracer.begin(Level.DEBUG, STEP, i)) {
+                tracer.add(value).add(alpha).emit();
+            }
+            progress(i, x, value);
+            i++;
+            if (Math.sqrt(step) <= EPSILON * EPSILON) {
+                break;
+            }
+        }
+        return x;
+    }
+    
+    /**
+     * Strong Wolfe line search along d from x, leaves the accepted point in trial
+     * @return Accepted step length, 0 if none was found
+     * */
+    private double lineSearch(double value, double slope, double[] d) {
+        double prevAlpha = 0;
+        double prevValue = value;
+        double prevSlope = slope;
+        double alpha = 1;
+        for (int k = 0; k < LINE_SEARCH_MAX; k++) {
+            double curr = probe(alpha, d);
+            double currSlope = dot(trialGrad, d);
+            if (curr > value + C1 * alpha * slope || (k > 0 && curr >= prevValue)) {
+                return zoom(value, slope, d, prevAlpha, prevValue, prevSlope, alpha, curr);
+            }
+            if (Math.abs(currSlope) <= -C2 * slope) {
+                return alpha;
+            }
+            if (currSlope >= 0) {
+                return zoom(value, slope, d, alpha, curr, currSlope, prevAlpha, prevValue);
+            }
+            prevAlpha = alpha;
+            prevValue = curr;
+            prevSlope = currSlope;
+            alpha *= 2;
+        }
+        return 0;
+    }
+    
+    private double zoom(double value, double slope, double[] d, double lo, double loValue, double loSlope, double hi, double hiValue) {
+        for (int k = 0; k < LINE_SEARCH_MAX; k++) {
+            //Minimum of the quadratic through lo (value and slope) and hi, kept away from the ends
+            double width = hi - lo;
+            double denominator = 2 * (hiValue - loValue - loSlope * width);
+            double alpha = denominator > 0 ? lo - loSlope * width * width / denominator : lo + width / 2;
+            double min = Math.min(lo, hi) + 0.1 * Math.abs(width);
+            double max = Math.max(lo, hi) - 0.1 * Math.abs(width);
+            if (!(alpha >= min && alpha <= max)) {
+                alpha = lo + width / 2;
+            }
+            
+            double curr = probe(alpha, d);
+            if (curr > value + C1 * alpha * slope || curr >= loValue) {
+                hi = alpha;
+                hiValue = curr;
+            }
+            else {
+                double currSlope = dot(trialGrad, d);
+                if (Math.abs(currSlope) <= -C2 * slope) {
+                    return alpha;
+                }
+                if (currSlope * (hi - lo) >= 0) {
+                    hi = lo;
+                    hiValue = loValue;
+                }
+                lo = alpha;
+                loValue = curr;
+                loSlope = currSlope;
+            }
+        }
+        //Accept the best point found if it still decreases the function
+        if (lo > 0 && loValue < value) {
+            probe(lo, d);
+            return lo;
+        }
+        return 0;
+    }
+    
+    /**Evaluates the function and gradient at x + alpha * d into trial*/
+    private double probe(double alpha, double[] d) {
+        for (int j = 0; j < size; j++) {
+            trial[j] = x[j] + alpha * d[j];
+        }
+        trialValue = evaluate(trial, trialGrad);
+        return trialValue;
+    }
+    
+    private double evaluate(double[] point, double[] gradOut) {
+        gradient(point, gradOut);
+        return apply(point);
+    }
+    
+    private static double dot(double[] a, double[] b) {
+        double res = 0;
+        for (int j = 0; j < a.length; j++) {
+            res += a[j] * b[j];
+        }
+        return res;
+    }
+    
+    private static void axpy(double k, double[] a, double[] out) {
+        for (int j = 0; j < a.length; j++) {
+            out[j] += k * a[j];
+        }
+    }
+    
+    private static double maxNorm(double[] a) {
+        double res = 0;
+        for (double v : a) {
+            res = Math.max(res, Math.abs(v));
+        }
+        return res;
+    }
+}
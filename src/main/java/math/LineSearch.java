@@ -0,0 +1,324 @@
+package math;
+
+import metrics.Counter;
+import metrics.SolveMetrics;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Bracketing and 1D line searches of {@link SolverUtils} over primitive arrays.
+ * Buffers and the 1D solver are kept between calls, so repeated searches of the same dimension don't allocate.
+ * Instances aren't thread safe.
+ */
+public class LineSearch {
+    private static final double GROWTH = (1 + Math.sqrt(5)) / 2;
+    private static final double GROWTH_LIMIT = 100;
+    private static final int BRACKET_MAX = 64;
+    
+    public enum Method {
+        /**Doubling steps until the function rises, then golden section search*/
+        GOLDEN_RATIO,
+        /**Parabolic extrapolation until the minimum is bracketed, then Brent's method*/
+        BRENT
+    }
+    
+    private final Method method;
+    private final Solver1D solver;
+    private SolveMetrics metrics;
+    //Bracket found by parabolicBracket, a < b < c or a > b > c with f(b) not above f(a) and f(c)
+    private double a;
+    private double b;
+    private double c;
+    private double fb;
+    private double[] prev = new double[0];
+    private double[] curr = new double[0];
+    private double[] next = new double[0];
+    private double[] axis = new double[0];
+    private double[] probe = new double[0];
+    private FunctionND f;
+    private double[] min;
+    private double[] max;
+    private final DoubleUnaryOperator segment = a -> {
+        for (int j = 0; j < probe.length; j++) {
+            probe[j] = min[j] * (1 - a) + max[j] * a;
+        }
+        return f.apply(probe);
+    };
+    private DoubleBinaryOperator f2;
+    private final FunctionND plane = point -> f2.applyAsDouble(point[0], point[1]);
+    private final double[] axis2 = new double[2];
+    private final double[] start2 = new double[2];
+    private double[] start;
+    //NaN outside the domain of f reads as a rise, so brackets stop at the domain's edge instead of failing
+    private DoubleUnaryOperator target;
+    private final DoubleUnaryOperator bounded = k -> {
+        double res = target.applyAsDouble(k);
+        return Double.isNaN(res) ? Double.POSITIVE_INFINITY : res;
+    };
+    private final DoubleUnaryOperator line = k -> {
+        for (int j = 0; j < probe.length; j++) {
+            probe[j] = start[j] + axis[j] * k;
+        }
+        return f.apply(probe);
+    };
+    
+    /**Uses the default method {@link SolverUtils#LINE_SEARCH}*/
+    public LineSearch() {
+        this(SolverUtils.LINE_SEARCH);
+    }
+    
+    public LineSearch(Method method) {
+        this.method = method;
+        this.solver = method == Method.BRENT ? new BrentSolver() : new GoldenRatioSolver();
+        solver.setHistory(null);
+    }
+    
+    public Method getMethod() {
+        return method;
+    }
+    
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**Counts the searches into metrics, nothing is counted when null*/
+    public void setMetrics(SolveMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    public double findMin(DoubleUnaryOperator f, double scale, double startValue) {
+        if (metrics != null) {
+            metrics.increment(Counter.LINE_SEARCHES);
+        }
+        if (method == Method.BRENT) {
+            return findMinBrent(f, scale, startValue);
+        }
+        int i = 1;
+        double prevX = startValue;
+        double currX = startValue;
+        double nextX;
+        do {
+            nextX = currX + scale * Math.pow(2, i);
+            if (f.applyAsDouble(currX) >= f.applyAsDouble(nextX)) {
+                //Positive direction
+                while (f.applyAsDouble(currX) > f.applyAsDouble(nextX)) {
+                    prevX = currX;
+                    currX = nextX;
+                    nextX = currX + scale * Math.pow(2, i);
+                    i++;
+                }
+                solver.setFunction(f);
+                return solver.solve(Math.min(prevX, nextX), Math.max(prevX, nextX)).getX();
+            }
+            nextX = currX - scale * Math.pow(2, i - 1);
+            if (f.applyAsDouble(currX) > f.applyAsDouble(nextX)) {
+                //Negative direction
+                while (f.applyAsDouble(currX) >= f.applyAsDouble(nextX)) {
+                    prevX = currX;
+                    currX = nextX;
+                    nextX = currX - scale * Math.pow(2, i);
+                    i++;
+                }
+                solver.setFunction(f);
+                return solver.solve(Math.min(nextX, prevX), Math.max(nextX, prevX)).getX();
+            }
+            scale /= 2;
+        } while (scale > SolverUtils.EPSILON);
+        return startValue;
+    }
+    
+    /**
+     * Searches for the minimum of f on the line through startPoint along axis
+     * @param out Receives the minimum, or startPoint if none was found
+     * */
+    public void findMinOnAxis(FunctionND f, double[] axis, double[] startPoint, double[] out) {
+        if (axis.length != startPoint.length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        if (metrics != null) {
+            metrics.increment(Counter.LINE_SEARCHES);
+        }
+        int size = axis.length;
+        ensureSize(size);
+        this.f = f;
+        System.arraycopy(axis, 0, this.axis, 0, size);
+        if (method == Method.BRENT) {
+            //Axis is copied first, so out may share storage with startPoint
+            System.arraycopy(startPoint, 0, curr, 0, size);
+            start = curr;
+            double res = findMinBrent(line, 1, 0);
+            for (int j = 0; j < size; j++) {
+                out[j] = curr[j] + this.axis[j] * res;
+            }
+            return;
+        }
+        System.arraycopy(startPoint, 0, prev, 0, size);
+        System.arraycopy(startPoint, 0, curr, 0, size);
+        axis = this.axis;
+        int i = 1;
+        double length;
+        do {
+            shift(curr, axis, Math.pow(2, i), next);
+            if (f.apply(curr) >= f.apply(next)) {
+                //Positive direction
+                while (f.apply(curr) > f.apply(next)) {
+                    System.arraycopy(curr, 0, prev, 0, size);
+                    System.arraycopy(next, 0, curr, 0, size);
+                    shift(curr, axis, Math.pow(2, i), next);
+                    i++;
+                }
+                searchSegment(out);
+                return;
+            }
+            shift(curr, axis, -Math.pow(2, i), next);
+            if (f.apply(curr) > f.apply(next)) {
+                //Negative direction
+                while (f.apply(curr) >= f.apply(next)) {
+                    System.arraycopy(curr, 0, prev, 0, size);
+                    System.arraycopy(next, 0, curr, 0, size);
+                    shift(curr, axis, -Math.pow(2, i), next);
+                    i++;
+                }
+                searchSegment(out);
+                return;
+            }
+            
+            length = 0;
+            for (int j = 0; j < size; j++) {
+                axis[j] /= 2.0;
+                length += axis[j] * axis[j];
+            }
+            length = Math.sqrt(length);
+        } while (length > SolverUtils.EPSILON);
+        System.arraycopy(startPoint, 0, out, 0, size);
+    }
+    
+    /**
+     * Searches for the minimum of a function of two variables on the line through (startX, startY) along (axisX, axisY)
+     * @param out Receives the coordinates of the minimum, or the start point if none was found
+     * */
+    public void findMinOnAxis(DoubleBinaryOperator f, double axisX, double axisY, double startX, double startY, double[] out) {
+        f2 = f;
+        axis2[0] = axisX;
+        axis2[1] = axisY;
+        start2[0] = startX;
+        start2[1] = startY;
+        findMinOnAxis(plane, axis2, start2, out);
+    }
+    
+    private double findMinBrent(DoubleUnaryOperator f, double scale, double startValue) {
+        target = f;
+        if (!parabolicBracket(bounded, startValue, startValue + scale)) {
+            return b;
+        }
+        solver.setFunction(bounded);
+        return ((BrentSolver) solver).solve(a, b, c, fb).getX();
+    }
+    
+    /**
+     * Walks downhill from the two points, extrapolating parabolas through the last three, until the function rises
+     * @return false if no bracket was found, the lowest point seen is left in b
+     * */
+    private boolean parabolicBracket(DoubleUnaryOperator f, double first, double second) {
+        a = first;
+        b = second;
+        double fa = f.applyAsDouble(a);
+        fb = f.applyAsDouble(b);
+        if (fb > fa) {
+            double tmp = a;
+            a = b;
+            b = tmp;
+            tmp = fa;
+            fa = fb;
+            fb = tmp;
+        }
+        c = b + GROWTH * (b - a);
+        double fc = f.applyAsDouble(c);
+        for (int i = 0; i < BRACKET_MAX && fb > fc; i++) {
+            //Vertex of the parabola through a, b and c
+            double r = (b - a) * (fb - fc);
+            double q = (b - c) * (fb - fa);
+            double denominator = 2 * Math.copySign(Math.max(Math.abs(q - r), Double.MIN_NORMAL), q - r);
+            double u = b - ((b - c) * q - (b - a) * r) / denominator;
+            double limit = b + GROWTH_LIMIT * (c - b);
+            double fu;
+            if ((b - u) * (u - c) > 0) {
+                //Vertex between b and c
+                fu = f.applyAsDouble(u);
+                if (fu < fc) {
+                    a = b;
+                    fa = fb;
+                    b = u;
+                    fb = fu;
+                    return true;
+                }
+                if (fu > fb) {
+                    c = u;
+                    return true;
+                }
+                u = c + GROWTH * (c - b);
+                fu = f.applyAsDouble(u);
+            }
+            else if ((c - u) * (u - limit) > 0) {
+                //Vertex past c but within the limit
+                fu = f.applyAsDouble(u);
+                if (fu < fc) {
+                    b = c;
+                    c = u;
+                    u = c + GROWTH * (c - b);
+                    fb = fc;
+                    fc = fu;
+                    fu = f.applyAsDouble(u);
+                }
+            }
+            else if ((u - limit) * (limit - c) >= 0) {
+                u = limit;
+                fu = f.applyAsDouble(u);
+            }
+            else {
+                u = c + GROWTH * (c - b);
+                fu = f.applyAsDouble(u);
+            }
+            a = b;
+            b = c;
+            c = u;
+            fa = fb;
+            fb = fc;
+            fc = fu;
+        }
+        if (fb > fc) {
+            b = c;
+            fb = fc;
+            return false;
+        }
+        return !Double.isNaN(fb) && !Double.isNaN(fc);
+    }
+    
+    /**Golden ratio search on the segment between prev and next*/
+    private void searchSegment(double[] out) {
+        min = prev;
+        max = next;
+        solver.setFunction(segment);
+        double res = solver.solve(0, 1).getX();
+        for (int j = 0; j < out.length; j++) {
+            out[j] = max[j] * res + min[j] * (1 - res);
+        }
+    }
+    
+    private static void shift(double[] point, double[] axis, double k, double[] out) {
+        for (int j = 0; j < point.length; j++) {
+            out[j] = point[j] + axis[j] * k;
+        }
+    }
+    
+    private void ensureSize(int size) {
+        if (prev.length != size) {
+            prev = new double[size];
+            curr = new double[size];
+            next = new double[size];
+            axis = new double[size];
+            probe = new double[size];
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**Keeps every iterate, memory grows with the length of the solve*/
+public class ListHistory implements IterateHistory {
+    private final List<double[]> points = new ArrayList<>();
+    
+    @Override
+    public void clear() {
+        points.clear();
+    }
+    
+    @Override
+    public void add(double[] point) {
+        points.add(point.clone());
+    }
+    
+    @Override
+    public List<double[]> getPoints() {
+        List<double[]> res = new ArrayList<>(points.size());
+        points.forEach(p -> res.add(p.clone()));
+        return res;
+    }
+}
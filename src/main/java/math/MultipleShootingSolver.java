@@ -0,0 +1,238 @@
+package math;
+
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import metrics.Phase;
+import metrics.SolveMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Multiple shooting: the interval is split into segments that are integrated independently in parallel,
+ * continuity at the segment borders and the end condition are then solved jointly with Newton's method.
+ */
+public class MultipleShootingSolver implements VariationalSolver {
+    public static final int SEGMENTS = 8;
+    private static final int I_MAX = 32;
+    private static final int DAMPING_MAX = 16;
+    private static final double TOLERANCE = 1e-9;
+    private static final double PERTURBATION = 1e-7;
+    
+    private final int segments;
+    private final OdeIntegrator integrator;
+    private final ForkJoinPool pool;
+    private volatile boolean cancelled;
+    private ProgressListener listener;
+    //Segments are integrated concurrently
+    private final LongAdder evaluations = new LongAdder();
+    private final SolveMetrics metrics = new SolveMetrics();
+    
+    public MultipleShootingSolver() {
+        this(SEGMENTS);
+    }
+    
+    public MultipleShootingSolver(int segments) {
+        this(segments, new EulerIntegrator(BallisticSolver.STEPS), ForkJoinPool.commonPool());
+    }
+    
+    public MultipleShootingSolver(int segments, OdeIntegrator integrator, ForkJoinPool pool) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("Segment count has to be positive");
+        }
+        this.segments = segments;
+        this.integrator = integrator;
+        this.pool = pool;
+    }
+    
+    /**Segments are integrated concurrently on the pool, so the integrand has to be thread safe*/
+    @Override
+    public List<Interpolator> solve(Integrand integrand, PointDouble start, PointDouble end) {
+        try {
+            return solveInternal(integrand, start, end);
+        }
+        finally {
+            cancelled = false;
+        }
+    }
+    
+    private List<Interpolator> solveInternal(Integrand integrand, PointDouble start, PointDouble end) {
+        metrics.clear();
+        long solveStart = System.nanoTime();
+        evaluations.reset();
+        Integrand function = (t, x, z) -> {
+            evaluations.increment();
+            return integrand.apply(t, x, z);
+        };
+        List<Interpolator> outList = new ArrayList<>();
+        double segmentT = (end.getX() - start.getX()) / segments;
+        int size = 2 * segments - 1;
+        
+        //Unknowns: z0, then (x, z) at the start of every other segment, initially on the straight line
+        double[] u = new double[size];
+        double slope = (end.getY() - start.getY()) / (end.getX() - start.getX());
+        u[0] = slope;
+        for (int k = 1; k < segments; k++) {
+            u[2 * k - 1] = start.getY() + slope * segmentT * k;
+            u[2 * k] = slope;
+        }
+        
+        double[][] flows = new double[segments][];
+        double[] r = new double[size];
+        double norm = shoot(function, start, end, segmentT, u, flows, r, outList);
+        Interpolator accepted = outList.get(outList.size() - 1);
+        int i = 0;
+        publish(i, u, norm, accepted);
+        while (i < I_MAX && norm > TOLERANCE) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            long linearStart = System.nanoTime();
+            double[][] jacobian = jacobian(flows, size);
+            double[] step = SolverUtils.solveLinear(jacobian, r);
+            metrics.stop(Phase.LINEAR_SOLVE, linearStart);
+            
+            //Damped update: halve the step until the residual decreases
+            double[] next = new double[size];
+            double[][] nextFlows = new double[segments][];
+            double[] nextR = new double[size];
+            double nextNorm = Double.POSITIVE_INFINITY;
+            double scale = 1;
+            for (int d = 0; d < DAMPING_MAX; d++) {
+                for (int j = 0; j < size; j++) {
+                    next[j] = u[j] - scale * step[j];
+                }
+                nextNorm = shoot(function, start, end, segmentT, next, nextFlows, nextR, outList);
+                if (nextNorm < norm) {
+                    break;
+                }
+                scale /= 2;
+            }
+            if (!(nextNorm < norm)) {
+                break;
+            }
+            u = next;
+            flows = nextFlows;
+            r = nextR;
+            norm = nextNorm;
+            accepted = outList.get(outList.size() - 1);
+            metrics.increment(Counter.ITERATIONS);
+            i++;
+            publish(i, u, norm, accepted);
+        }
+        //Put the accepted trajectory last
+        outList.remove(accepted);
+        outList.add(accepted);
+        metrics.add(Counter.EVALUATIONS, evaluations.sum());
+        metrics.stop(Phase.SOLVE, solveStart);
+        MetricsRegistry.getDefault().record(metrics);
+        return outList;
+    }
+    
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public ProgressListener getListener() {
+        return listener;
+    }
+    
+    /**Receives the joined trajectory of the starting guess and of every accepted Newton update, the point holds the unknowns*/
+    @Override
+    public void setListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+    
+    /**Probes count every integrated segment including the two perturbed ones, iterations the accepted Newton updates*/
+    @Override
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Integrates all segments in parallel, filling in the end states with their sensitivities and the residuals
+     * @return Euclidean norm of the residuals
+     */
+    private double shoot(Integrand function, PointDouble start, PointDouble end, double segmentT, double[] u, double[][] flows, double[] r, List<Interpolator> outSequenceList) {
+        List<List<PointDouble>> points = new ArrayList<>();
+        for (int k = 0; k < segments; k++) {
+            points.add(new ArrayList<>());
+        }
+        metrics.add(Counter.PROBES, 3L * segments);
+        long integrationStart = System.nanoTime();
+        pool.submit(() -> IntStream.range(0, segments).parallel().forEach(k -> {
+            double t0 = start.getX() + k * segmentT;
+            double x0 = k == 0 ? start.getY() : u[2 * k - 1];
+            double z0 = k == 0 ? u[0] : u[2 * k];
+            double t1 = k == segments - 1 ? end.getX() : t0 + segmentT;
+            List<PointDouble> segment = points.get(k);
+            double[] base = integrator.integrate(function, t0, x0, z0, t1, (t, x) -> segment.add(new PointDouble(t, x)));
+            double[] dx = integrator.integrate(function, t0, x0 + PERTURBATION, z0, t1, null);
+            double[] dz = integrator.integrate(function, t0, x0, z0 + PERTURBATION, t1, null);
+            flows[k] = new double[] {
+                    base[0], base[1],
+                    (dx[0] - base[0]) / PERTURBATION, (dx[1] - base[1]) / PERTURBATION,
+                    (dz[0] - base[0]) / PERTURBATION, (dz[1] - base[1]) / PERTURBATION
+            };
+        })).join();
+        metrics.stop(Phase.INTEGRATION, integrationStart);
+        
+        List<PointDouble> trajectory = new ArrayList<>();
+        for (int k = 0; k < segments; k++) {
+            List<PointDouble> segment = points.get(k);
+            trajectory.addAll(k == 0 ? segment : segment.subList(1, segment.size()));
+        }
+        outSequenceList.add(new GridInterpolator(trajectory));
+        
+        double norm = 0;
+        for (int k = 0; k < segments - 1; k++) {
+            r[2 * k] = flows[k][0] - u[2 * k + 1];
+            r[2 * k + 1] = flows[k][1] - u[2 * k + 2];
+        }
+        r[2 * segments - 2] = flows[segments - 1][0] - end.getY();
+        for (double v : r) {
+            norm += v * v;
+        }
+        return Math.sqrt(norm);
+    }
+    
+    /**Reports the unknowns with the norm of their residuals as the value*/
+    private void publish(int iteration, double[] u, double norm, Interpolator trajectory) {
+        if (listener != null) {
+            listener.progress(new ProgressEvent(iteration, u.clone(), norm, evaluations.sum(), trajectory));
+        }
+    }
+    
+    private double[][] jacobian(double[][] flows, int size) {
+        double[][] jacobian = new double[size][size];
+        for (int k = 0; k < segments; k++) {
+            double[] flow = flows[k];
+            int rowX = 2 * k;
+            int rowZ = 2 * k + 1;
+            if (k == 0) {
+                jacobian[rowX][0] = flow[4];
+                if (rowZ < size) {
+                    jacobian[rowZ][0] = flow[5];
+                }
+            }
+            else {
+                jacobian[rowX][2 * k - 1] = flow[2];
+                jacobian[rowX][2 * k] = flow[4];
+                if (rowZ < size) {
+                    jacobian[rowZ][2 * k - 1] = flow[3];
+                    jacobian[rowZ][2 * k] = flow[5];
+                }
+            }
+            if (k < segments - 1) {
+                jacobian[rowX][2 * k + 1] = -1;
+                jacobian[rowZ][2 * k + 2] = -1;
+            }
+        }
+        return jacobian;
+    }
+}
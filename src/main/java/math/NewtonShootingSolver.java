@@ -0,0 +1,177 @@
+package math;
+
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import metrics.Phase;
+import metrics.SolveMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Shooting with Newton updates of z0. The sensitivity s = dx/dz0 is integrated alongside the trajectory
+ * from the variational equation s'' = f_x * s + f_z * s', which gives the derivative of the end point residual.
+ */
+public class NewtonShootingSolver implements VariationalSolver {
+    private static final int I_MAX = 16;
+    private static final double TOLERANCE = 1e-9;
+    private static final double PARTIAL_STEP = 1e-6;
+    
+    private final int steps;
+    private double residual;
+    private int iterations;
+    private volatile boolean cancelled;
+    private ProgressListener listener;
+    private final SolveMetrics metrics = new SolveMetrics();
+    
+    public NewtonShootingSolver() {
+        this(BallisticSolver.STEPS);
+    }
+    
+    public NewtonShootingSolver(int steps) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("Step count has to be positive");
+        }
+        this.steps = steps;
+    }
+    
+    @Override
+    public List<Interpolator> solve(Integrand integrand, PointDouble start, PointDouble end) {
+        try {
+            return solveInternal(integrand, start, end);
+        }
+        finally {
+            cancelled = false;
+        }
+    }
+    
+    private List<Interpolator> solveInternal(Integrand integrand, PointDouble start, PointDouble end) {
+        metrics.clear();
+        long solveStart = System.nanoTime();
+        Integrand function = (t, x, z) -> {
+            metrics.increment(Counter.EVALUATIONS);
+            return integrand.apply(t, x, z);
+        };
+        List<Interpolator> outList = new ArrayList<>();
+        double z0 = BallisticSolver.INITIAL_Z;
+        double[] state = integrate(function, z0, start, end, outList);
+        residual = state[0] - end.getY();
+        iterations = 0;
+        publish(z0, outList);
+        double step = Double.POSITIVE_INFINITY;
+        //Stops once either the residual or the update is negligible, the latter bounds the error on stiff problems
+        while (iterations < I_MAX && Math.abs(residual) > TOLERANCE && Math.abs(step) > TOLERANCE * Math.max(1, Math.abs(z0)) && state[2] != 0) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            step = residual / state[2];
+            z0 -= step;
+            state = integrate(function, z0, start, end, outList);
+            residual = state[0] - end.getY();
+            iterations++;
+            publish(z0, outList);
+        }
+        metrics.add(Counter.ITERATIONS, iterations);
+        metrics.stop(Phase.SOLVE, solveStart);
+        MetricsRegistry.getDefault().record(metrics);
+        return outList;
+    }
+    
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public ProgressListener getListener() {
+        return listener;
+    }
+    
+    /**Receives the trajectory of the starting guess and of every Newton update, the point holds z0*/
+    @Override
+    public void setListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+    
+    /**Evaluations count the integrand including the ones for its partial derivatives*/
+    @Override
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**@return End point residual x(T) - x1 of the last solve*/
+    public double getResidual() {
+        return residual;
+    }
+    
+    /**@return Number of Newton updates made during the last solve*/
+    public int getIterations() {
+        return iterations;
+    }
+    
+    /**Reports the last integrated trajectory with the absolute residual as the value*/
+    private void publish(double z0, List<Interpolator> outList) {
+        if (listener != null) {
+            listener.progress(new ProgressEvent(iterations, new double[] {z0}, Math.abs(residual), metrics.get(Counter.EVALUATIONS), outList.get(outList.size() - 1)));
+        }
+    }
+    
+    /**
+     * Classic Runge-Kutta on the state (x, z, s, w) with w = s'
+     * @return State at the end point
+     */
+    private double[] integrate(Integrand function, double z0, PointDouble start, PointDouble end, List<Interpolator> outSequenceList) {
+        metrics.increment(Counter.PROBES);
+        long integrationStart = System.nanoTime();
+        double deltaT = (end.getX() - start.getX()) / (double)steps;
+        double[] y = {start.getY(), z0, 0, 1};
+        double[] k1 = new double[4];
+        double[] k2 = new double[4];
+        double[] k3 = new double[4];
+        double[] k4 = new double[4];
+        double[] tmp = new double[4];
+        List<PointDouble> points = new ArrayList<>();
+        double t = start.getX();
+        
+        for (int i = 0; i <= steps; i++) {
+            points.add(new PointDouble(t, y[0]));
+            
+            if (i == steps) {
+                break;
+            }
+            
+            derivative(function, t, y, k1);
+            for (int j = 0; j < 4; j++) {
+                tmp[j] = y[j] + deltaT / 2 * k1[j];
+            }
+            derivative(function, t + deltaT / 2, tmp, k2);
+            for (int j = 0; j < 4; j++) {
+                tmp[j] = y[j] + deltaT / 2 * k2[j];
+            }
+            derivative(function, t + deltaT / 2, tmp, k3);
+            for (int j = 0; j < 4; j++) {
+                tmp[j] = y[j] + deltaT * k3[j];
+            }
+            derivative(function, t + deltaT, tmp, k4);
+            for (int j = 0; j < 4; j++) {
+                y[j] += deltaT / 6 * (k1[j] + 2 * k2[j] + 2 * k3[j] + k4[j]);
+            }
+            t = start.getX() + (i + 1) * deltaT;
+        }
+        outSequenceList.add(new GridInterpolator(points));
+        metrics.stop(Phase.INTEGRATION, integrationStart);
+        return y;
+    }
+    
+    private void derivative(Integrand function, double t, double[] y, double[] out) {
+        double x = y[0];
+        double z = y[1];
+        double f = function.apply(t, x, z);
+        double fx = (function.apply(t, x + PARTIAL_STEP, z) - function.apply(t, x - PARTIAL_STEP, z)) / (2 * PARTIAL_STEP);
+        double fz = (function.apply(t, x, z + PARTIAL_STEP) - function.apply(t, x, z - PARTIAL_STEP)) / (2 * PARTIAL_STEP);
+        out[0] = z;
+        out[1] = f;
+        out[2] = y[3];
+        out[3] = fx * y[2] + fz * y[3];
+    }
+}
@@ -0,0 +1,34 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * Collects the nodes of one trajectory into growing primitive arrays.
+ * Reused across trajectories, so integrating allocates nothing per node once the arrays have grown to the longest one.
+ */
+final class NodeBuffer implements TrajectorySink {
+    private double[] times = new double[64];
+    private double[] values = new double[64];
+    private int size;
+    
+    @Override
+    public void begin() {
+        size = 0;
+    }
+    
+    @Override
+    public void node(double t, double x) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, 2 * size);
+            values = Arrays.copyOf(values, 2 * size);
+        }
+        times[size] = t;
+        values[size] = x;
+        size++;
+    }
+    
+    /**Copies the collected nodes out, the buffer can be refilled afterwards*/
+    GridInterpolator toInterpolator() {
+        return GridInterpolator.trimmed(times, values, size);
+    }
+}
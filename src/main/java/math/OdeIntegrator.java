@@ -0,0 +1,11 @@
+package math;
+
+/**Integrates the second order equation x'' = f(t, x, x') written as the system x' = z, z' = f(t, x, z)*/
+public interface OdeIntegrator {
+    /**
+     * @param nodes Receives the (t, x) nodes of the trajectory as they are computed, ignored if null
+     * @return State (x, z) at t1
+     * @throws ArithmeticException If the integration can't reach t1
+     * */
+    double[] integrate(Integrand function, double t0, double x0, double z0, double t1, TrajectorySink nodes);
+}
@@ -0,0 +1,63 @@
+package math;
+
+import java.util.function.Supplier;
+
+/**State of a solve after one iteration*/
+public class ProgressEvent {
+    private final int iteration;
+    private final double[] point;
+    private final double value;
+    private final long evaluations;
+    //Cleared once the trajectory is built
+    private Supplier<? extends Interpolator> builder;
+    private Interpolator trajectory;
+    
+    /**Event of a plain optimizer, without a trajectory*/
+    public ProgressEvent(int iteration, double[] point, double value, long evaluations) {
+        this(iteration, point, value, evaluations, () -> null);
+    }
+    
+    public ProgressEvent(int iteration, double[] point, double value, long evaluations, Interpolator trajectory) {
+        this(iteration, point, value, evaluations, () -> trajectory);
+    }
+    
+    /**
+     * @param trajectory Builds the trajectory the first time it is asked for, so listeners that skip events don't pay for it.
+     * May be called on another thread after the solve has moved on, so it should only read state owned by the event
+     * */
+    public ProgressEvent(int iteration, double[] point, double value, long evaluations, Supplier<? extends Interpolator> trajectory) {
+        this.iteration = iteration;
+        this.point = point;
+        this.value = value;
+        this.evaluations = evaluations;
+        this.builder = trajectory;
+    }
+    
+    public int getIteration() {
+        return iteration;
+    }
+    
+    /**@return Copy of the current iterate, owned by the event*/
+    public double[] getPoint() {
+        return point;
+    }
+    
+    /**@return Objective value at the current iterate*/
+    public double getValue() {
+        return value;
+    }
+    
+    /**@return Function evaluations made so far*/
+    public long getEvaluations() {
+        return evaluations;
+    }
+    
+    /**@return Current trajectory of a variational solve, null for plain optimizers*/
+    public synchronized Interpolator getTrajectory() {
+        if (builder != null) {
+            trajectory = builder.get();
+            builder = null;
+        }
+        return trajectory;
+    }
+}
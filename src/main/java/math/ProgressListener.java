@@ -0,0 +1,9 @@
+package math;
+
+/**
+ * Receives an event after each solver iteration, on the thread running the solve.
+ * Throwing {@link java.util.concurrent.CancellationException} from it stops the solve.
+ */
+public interface ProgressListener {
+    void progress(ProgressEvent event);
+}
@@ -0,0 +1,49 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**Keeps the last iterates in a ring buffer whose rows are reused, so a long solve doesn't allocate once it's full*/
+public class RingHistory implements IterateHistory {
+    private final double[][] rows;
+    private int next;
+    private int size;
+    
+    /**@param capacity Number of the latest iterates kept*/
+    public RingHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity has to be positive");
+        }
+        rows = new double[capacity][];
+    }
+    
+    public int getCapacity() {
+        return rows.length;
+    }
+    
+    @Override
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+    
+    @Override
+    public void add(double[] point) {
+        if (rows[next] == null || rows[next].length != point.length) {
+            rows[next] = new double[point.length];
+        }
+        System.arraycopy(point, 0, rows[next], 0, point.length);
+        next = (next + 1) % rows.length;
+        size = Math.min(size + 1, rows.length);
+    }
+    
+    @Override
+    public List<double[]> getPoints() {
+        List<double[]> res = new ArrayList<>(size);
+        int first = (next - size + rows.length) % rows.length;
+        for (int k = 0; k < size; k++) {
+            res.add(rows[(first + k) % rows.length].clone());
+        }
+        return res;
+    }
+}
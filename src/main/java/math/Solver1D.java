@@ -1,28 +1,63 @@
 package math;
 
+import metrics.Counter;
+import metrics.Phase;
+import metrics.SolveMetrics;
+import trace.TraceRecorder;
+import trace.TraceSink;
+import trace.Tracer;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 public abstract class Solver1D {
     public static final Double EPSILON = 0.001;
-    private Function<Double, Double> f;
-    private List<String> log = new ArrayList<>();
-    private List<PointDouble> points = new ArrayList<>();
+    private DoubleUnaryOperator f;
+    private EvaluationCache cache;
+    private final SolveMetrics metrics = new SolveMetrics();
+    private final Tracer tracer = new Tracer();
+    private IterateHistory history = new ListHistory();
+    private final double[] point = new double[2];
     
     public Solver1D(){}
     public Solver1D(Function<Double, Double> f) {
-        this.f = f;
+        setF(f);
     }
-
+    
     public Function<Double, Double> getF() {
-        return this.f;
+        return f == null ? null : x -> f.applyAsDouble(x);
     }
-
+    
     public void setF(Function<Double, Double> f) {
+        setFunction(f == null ? null : f::apply);
+    }
+    
+    public DoubleUnaryOperator getFunction() {
+        return f;
+    }
+    
+    /**Sets the function over primitives, evaluated without boxing*/
+    public void setFunction(DoubleUnaryOperator f) {
         this.f = f;
+        if (cache != null) {
+            cache.clear();
+        }
     }
-
+    
+    public EvaluationCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Memoizes evaluations of f, kept between solves until f is replaced
+     * @param capacity Number of values kept, 0 disables the cache
+     * */
+    public void setCacheCapacity(int capacity) {
+        cache = capacity > 0 ? new EvaluationCache(capacity) : null;
+    }
+    
     /**
      * Solve the equation
      * @param lower Lower bound of search
@@ -30,36 +65,72 @@ public abstract class Solver1D {
      * @return Root of the equation, null if none found
      * */
     public PointDouble solve(double lower, double upper) {
-        points.clear();
-        log.clear();
-        return solveInternal(lower, upper);
+        clearSolution();
+        long start = System.nanoTime();
+        PointDouble res = solveInternal(lower, upper);
+        metrics.stop(Phase.SOLVE, start);
+        return res;
+    }
+    
+    /**Drops the points and metrics of the previous solve*/
+    protected void clearSolution() {
+        if (history != null) {
+            history.clear();
+        }
+        metrics.clear();
+    }
+    
+    /**@return Counters and times of the last solve, reused by the next one. Evaluations are counted through apply*/
+    public SolveMetrics getMetrics() {
+        return metrics;
     }
     
     protected abstract PointDouble solveInternal(double lower, double upper);
-    protected abstract int getLogBatchSize();
-
-    protected void addToLog(String value) {
-        log.add(value);
+    
+    protected double apply(double x) {
+        metrics.increment(Counter.EVALUATIONS);
+        return cache == null ? f.applyAsDouble(x) : cache.apply(x, f);
     }
+    
     protected void addPoint(PointDouble point) {
-        points.add(point);
+        addPoint(point.getX(), point.getY());
     }
-
-    /**@return Returns log as a list of string, each representing a solution step*/
-    public List<String> getSolutionLog() {
-        List<String> strings = new ArrayList<>();
-        StringBuilder string = new StringBuilder();
-        for (int i = 0; i < this.log.size(); ++i) {
-            if (i % getLogBatchSize() == 0 && string.length() != 0) {
-                strings.add(string.toString());
-                string = new StringBuilder();
-            }
-            string.append(this.log.get(i)).append(" ");
+    
+    /**Records x and f(x) in the history, if there is one*/
+    protected void addPoint(double x, double y) {
+        if (history != null) {
+            point[0] = x;
+            point[1] = y;
+            history.add(point);
         }
-        return strings;
     }
     
+    public IterateHistory getHistory() {
+        return history;
+    }
+    
+    /**Sets where points (x, f(x)) are recorded, nothing is recorded when null. Every point is kept by default*/
+    public void setHistory(IterateHistory history) {
+        this.history = history;
+    }
+    
+    /**Traces the steps of each solve, disabled until a level and sink are set*/
+    public Tracer getTracer() {
+        return tracer;
+    }
+    
+    /**@return Events kept by the tracer's recorder, one per solution step, empty if its sink isn't a {@link TraceRecorder}*/
+    public List<String> getSolutionLog() {
+        TraceSink sink = tracer.getSink();
+        return sink instanceof TraceRecorder ? ((TraceRecorder) sink).format() : new ArrayList<>();
+    }
+    
+    /**@return Points kept by the history, empty without one*/
     public List<PointDouble> getPoints() {
-        return points;
+        List<PointDouble> res = new ArrayList<>();
+        if (history != null) {
+            history.getPoints().forEach(p -> res.add(new PointDouble(p[0], p[1])));
+        }
+        return res;
     }
 }
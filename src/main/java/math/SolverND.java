@@ -1,72 +1,234 @@
 package math;
 
+import metrics.Counter;
+import metrics.Phase;
+import metrics.SolveMetrics;
+import trace.TraceRecorder;
+import trace.TraceSink;
+import trace.Tracer;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.function.Function;
 
 public abstract class SolverND {
     public static final Double EPSILON = 0.001;
     public static int PRECISION = 3;
-    private Function<List<Double>, Double> f;
-    private List<String> log = new ArrayList<>();
-    private List<List<Double>> points = new ArrayList<>();
+    private FunctionND f;
+    private EvaluationCache cache;
+    private FunctionND objective;
+    private ProgressListener listener;
+    private final SolveMetrics metrics = new SolveMetrics();
+    private volatile boolean cancelled;
+    private Function<List<Double>, List<Double>> gradient;
+    private final Tracer tracer = new Tracer();
+    private IterateHistory history = new ListHistory();
     
     public SolverND(){}
     public SolverND(Function<List<Double>, Double> f) {
-        this.f = f;
+        setF(f);
     }
-
+    
     public Function<List<Double>, Double> getF() {
-        return this.f;
+        return f == null ? null : l -> f.apply(SolverUtils.toArray(l));
     }
-
+    
     public void setF(Function<List<Double>, Double> f) {
+        setFunction(f == null ? null : FunctionND.of(f));
+    }
+    
+    public FunctionND getFunction() {
+        return f;
+    }
+    
+    /**Sets the objective over primitive arrays, its gradient is used unless one is set with setGradient*/
+    public void setFunction(FunctionND f) {
         this.f = f;
+        updateObjective();
     }
     
-    public List<Double> solve(List<Double> data) {
-        points.clear();
-        log.clear();
-        return solveInternal(data);
+    public EvaluationCache getCache() {
+        return cache;
     }
     
-    protected abstract List<Double> solveInternal(List<Double> data);
-    protected abstract int getLogBatchSize();
-
-    protected void addToLog(String value) {
-        log.add(value);
+    /**
+     * Memoizes evaluations of f, kept between solves until f is replaced
+     * @param capacity Number of values kept, 0 disables the cache
+     * */
+    public void setCacheCapacity(int capacity) {
+        cache = capacity > 0 ? new EvaluationCache(capacity) : null;
+        updateObjective();
     }
-    protected void addPoint(List<Double> point) {
-        points.add(point);
+    
+    /**@return f, evaluated through the cache when it's enabled*/
+    protected FunctionND getObjective() {
+        return objective;
     }
-
-    /**@return Returns log as a list of string, each representing a solution step*/
-    public List<String> getSolutionLog() {
-        List<String> strings = new ArrayList<>();
-        StringBuilder string = new StringBuilder();
-        for (int i = 0; i < this.log.size(); ++i) {
-            if (i % getLogBatchSize() == 0 && string.length() != 0) {
-                strings.add(string.toString());
-                string = new StringBuilder();
+    
+    private void updateObjective() {
+        if (cache != null) {
+            cache.clear();
+        }
+        FunctionND target = cache == null || f == null ? f : cache.wrap(f);
+        objective = target == null ? null : new FunctionND() {
+            @Override
+            public double apply(double[] point) {
+                metrics.increment(Counter.EVALUATIONS);
+                return target.apply(point);
+            }
+            
+            @Override
+            public void gradient(double[] point, double[] out) {
+                target.gradient(point, out);
             }
-            string.append(this.log.get(i)).append(" ");
+        };
+    }
+    
+    public ProgressListener getListener() {
+        return listener;
+    }
+    
+    /**Receives the iterate after each iteration, nothing is computed for it when null*/
+    public void setListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Stops the running solve at the end of its current iteration with a CancellationException.
+     * When no solve is running the next one stops instead, the request is cleared once a solve ends
+     * */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**@return Evaluations of f made through the solver during the last solve, analytic gradients aren't counted*/
+    public long getEvaluations() {
+        return metrics.get(Counter.EVALUATIONS);
+    }
+    
+    /**@return Counters and times of the last solve, reused by the next one. Iterations are the calls of progress*/
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public Function<List<Double>, List<Double>> getGradient() {
+        return gradient;
+    }
+    
+    /**Sets an analytic gradient of f, used instead of finite differences when not null*/
+    public void setGradient(Function<List<Double>, List<Double>> gradient) {
+        this.gradient = gradient;
+    }
+    
+    public List<Double> solve(List<Double> data) {
+        return SolverUtils.toList(solve(SolverUtils.toArray(data)));
+    }
+    
+    public double[] solve(double[] data) {
+        if (history != null) {
+            history.clear();
+        }
+        metrics.clear();
+        long start = System.nanoTime();
+        try {
+            double[] res = solveInternal(data.clone());
+            metrics.stop(Phase.SOLVE, start);
+            return res;
+        }
+        finally {
+            cancelled = false;
+        }
+    }
+    
+    /**@param data Starting point, owned by the solver and may be used as the working buffer*/
+    protected abstract double[] solveInternal(double[] data);
+    
+    protected double apply(double[] point) {
+        return objective.apply(point);
+    }
+    
+    /**Publishes the iterate, its value is only evaluated when a listener is set. Stops the solve once cancelled*/
+    protected void progress(int iteration, double[] point) {
+        metrics.increment(Counter.ITERATIONS);
+        if (cancelled) {
+            throw new CancellationException();
         }
-        if (string.length() != 0) {
-            strings.add(string.toString());
+        if (listener != null) {
+            publish(iteration, point, apply(point));
         }
-        return strings;
     }
     
+    protected void progress(int iteration, double[] point, double value) {
+        metrics.increment(Counter.ITERATIONS);
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (listener != null) {
+            publish(iteration, point, value);
+        }
+    }
+    
+    private void publish(int iteration, double[] point, double value) {
+        listener.progress(new ProgressEvent(iteration, point.clone(), value, getEvaluations()));
+    }
+    
+    /**Records the point in the history, if there is one*/
+    protected void addPoint(double[] point) {
+        if (history != null) {
+            history.add(point);
+        }
+    }
+    
+    public IterateHistory getHistory() {
+        return history;
+    }
+    
+    /**Sets where iterates are recorded, nothing is recorded when null. Every iterate is kept by default*/
+    public void setHistory(IterateHistory history) {
+        this.history = history;
+    }
+    
+    /**Traces the steps of each solve, disabled until a level and sink are set*/
+    public Tracer getTracer() {
+        return tracer;
+    }
+    
+    /**@return Events kept by the tracer's recorder, one per solution step, empty if its sink isn't a {@link TraceRecorder}*/
+    public List<String> getSolutionLog() {
+        TraceSink sink = tracer.getSink();
+        return sink instanceof TraceRecorder ? ((TraceRecorder) sink).format() : new ArrayList<>();
+    }
+    
+    /**@return Iterates kept by the history, empty without one*/
     public List<List<Double>> getPoints() {
-        return points;
+        List<List<Double>> res = new ArrayList<>();
+        if (history != null) {
+            history.getPoints().forEach(p -> res.add(SolverUtils.toList(p)));
+        }
+        return res;
     }
     
     public List<Double> gradient(List<Double> point) {
-        List<Double> grad = new ArrayList<>();
-        for (int i = 0; i < point.size(); i++) {
-            grad.add(dfdk(point, i));
+        double[] grad = new double[point.size()];
+        gradient(SolverUtils.toArray(point), grad);
+        return SolverUtils.toList(grad);
+    }
+    
+    /**Fills out with the gradient of f at point*/
+    public void gradient(double[] point, double[] out) {
+        if (gradient != null) {
+            List<Double> grad = gradient.apply(SolverUtils.toList(point));
+            for (int i = 0; i < out.length; i++) {
+                out[i] = grad.get(i);
+            }
+            return;
         }
-        return grad;
+        objective.gradient(point, out);
     }
     
     public double dfdk(List<Double> point, int index, int order) {
@@ -77,14 +239,11 @@ public abstract class SolverND {
             throw new IllegalArgumentException("Point doesn't contain dimension " + index);
         }
         if (order == 0) {
-            return f.apply(point);
+            return objective.apply(SolverUtils.toArray(point));
         }
         List<Double> shifted = new ArrayList<>();
         for (int i = 0; i < point.size(); i++) {
-            if (i == index) {
-                shifted.add(point.get(i) + EPSILON);
-            }
-            shifted.add(point.get(i));
+            shifted.add(i == index ? point.get(i) + EPSILON : point.get(i));
         }
         return (dfdk(shifted, index, order - 1) - dfdk(point, index, order - 1)) / EPSILON;
     }
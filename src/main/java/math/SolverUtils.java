@@ -1,257 +1,229 @@
 package math;
 
+import metrics.SolveMetrics;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
 public abstract class SolverUtils {
     public static final Double EPSILON = 0.001;
+    /**1D minimization used by line searches given no method, the helpers below and the solvers take one to override it*/
+    public static final LineSearch.Method LINE_SEARCH = LineSearch.Method.BRENT;
     
     public static PointDouble gradient(BiFunction<Double, Double, Double> f, PointDouble point) {
-        return new PointDouble(fdx(f, point, 1), fdy(f, point, 1));
+        double[] out = new double[2];
+        gradient(of(f), point.getX(), point.getY(), out);
+        return new PointDouble(out[0], out[1]);
+    }
+    
+    /**@param out Receives the partial derivatives by x and y*/
+    public static void gradient(DoubleBinaryOperator f, double x, double y, double[] out) {
+        out[0] = fdx(f, x, y, 1);
+        out[1] = fdy(f, x, y, 1);
     }
     
     public static double fdx(BiFunction<Double, Double, Double> f, PointDouble point, int order) {
+        return fdx(of(f), point.getX(), point.getY(), order);
+    }
+    
+    public static double fdx(BiFunction<Double, Double, Double> f, PointDouble point) {
+        return fdx(f, point, 1);
+    }
+    
+    public static double fdx(DoubleBinaryOperator f, double x, double y, int order) {
         if (order < 0) {
             throw new IllegalArgumentException("Derivative order has to be non-negative");
         }
         if (order == 0) {
-            return f.apply(point.getX(), point.getY());
+            return f.applyAsDouble(x, y);
         }
-        return (fdx(f, point.add(EPSILON, 0), order - 1) - fdx(f, point, order - 1)) / EPSILON;
+        return (fdx(f, x + EPSILON, y, order - 1) - fdx(f, x, y, order - 1)) / EPSILON;
     }
     
-    public static double fdx(BiFunction<Double, Double, Double> f, PointDouble point) {
-        return fdx(f, point, 1);
+    public static double fdx(DoubleBinaryOperator f, double x, double y) {
+        return fdx(f, x, y, 1);
     }
     
     public static double fdy(BiFunction<Double, Double, Double> f, PointDouble point, int order) {
+        return fdy(of(f), point.getX(), point.getY(), order);
+    }
+    
+    public static double fdy(BiFunction<Double, Double, Double> f, PointDouble point) {
+        return fdy(f, point, 1);
+    }
+    
+    public static double fdy(DoubleBinaryOperator f, double x, double y, int order) {
         if (order < 0) {
             throw new IllegalArgumentException("Derivative order has to be non-negative");
         }
         if (order == 0) {
-            return f.apply(point.getX(), point.getY());
+            return f.applyAsDouble(x, y);
         }
-        return (fdy(f, point.add(0, EPSILON), order - 1) - fdy(f, point, order - 1)) / EPSILON;
+        return (fdy(f, x, y + EPSILON, order - 1) - fdy(f, x, y, order - 1)) / EPSILON;
     }
     
-    public static double fdy(BiFunction<Double, Double, Double> f, PointDouble point) {
-        return fdy(f, point, 1);
+    public static double fdy(DoubleBinaryOperator f, double x, double y) {
+        return fdy(f, x, y, 1);
     }
     
     public static double findMin(Function<Double, Double> f, double scale, double startValue) {
+        return findMinPrimitive(f::apply, scale, startValue);
+    }
     
-        int i = 0;
-        double prevX = startValue;
-        double currX = startValue;
-        double nextX = currX + scale * Math.pow(2, i);
-        i++;
-        do {
-            nextX = currX + scale * Math.pow(2, i);
-            if (f.apply(currX) >= f.apply(nextX)) {
-                //Positive direction
-                while (f.apply(currX) > f.apply(nextX)) {
-                    prevX = currX;
-                    currX = nextX;
-                    nextX = currX + scale * Math.pow(2, i);
-                    i++;
-                }
-                double minX = prevX;
-                double maxX = nextX;
-                Solver1D solver = new GoldenRatioSolver();
-                solver.setF(f);
-                PointDouble res = solver.solve(Math.min(minX, maxX), Math.max(minX, maxX));
-                return res.getX();
-            }
-            nextX = currX - scale * Math.pow(2, i - 1);
-            if (f.apply(currX) > f.apply(nextX)) {
-                //Negative direction
-                while (f.apply(currX) >= f.apply(nextX)) {
-                    prevX = currX;
-                    currX = nextX;
-                    nextX = currX - scale * Math.pow(2, i);
-                    i++;
-                }
-                double minX = nextX;
-                double maxX = prevX;
-                Solver1D solver = new GoldenRatioSolver();
-                solver.setF(f);
-                PointDouble res = solver.solve(Math.min(minX, maxX), Math.max(minX, maxX));
-                return res.getX();
-            }
-            scale /= 2;
-        } while (scale > EPSILON);
-        return startValue;
+    /**Same as {@link #findMin(Function, double, double)} without boxing*/
+    public static double findMinPrimitive(DoubleUnaryOperator f, double scale, double startValue) {
+        return findMinPrimitive(f, scale, startValue, null);
+    }
+    
+    /**@param metrics Receives the line search count, may be null*/
+    public static double findMinPrimitive(DoubleUnaryOperator f, double scale, double startValue, SolveMetrics metrics) {
+        return findMinPrimitive(f, scale, startValue, LINE_SEARCH, metrics);
+    }
+    
+    /**@param metrics Receives the line search count, may be null*/
+    public static double findMinPrimitive(DoubleUnaryOperator f, double scale, double startValue, LineSearch.Method method, SolveMetrics metrics) {
+        LineSearch lineSearch = new LineSearch(method);
+        lineSearch.setMetrics(metrics);
+        return lineSearch.findMin(f, scale, startValue);
     }
     
     public static PointDouble findMinOnAxis(BiFunction<Double, Double, Double> f, PointDouble axis, PointDouble startPoint) {
-        
-        int i = 0;
-        double prevX = startPoint.getX();
-        double prevY = startPoint.getY();
-        double currX = startPoint.getX();
-        double currY = startPoint.getY();
-        double nextX = currX + axis.getX() * Math.pow(2, i);
-        double nextY = currY + axis.getY() * Math.pow(2, i);
-        i++;
-        
-        do {
-            nextX = currX + axis.getX() * Math.pow(2, i);
-            nextY = currY + axis.getY() * Math.pow(2, i);
-            if (f.apply(currX, currY) >= f.apply(nextX, nextY)) {
-                //Positive direction
-                while (f.apply(currX, currY) > f.apply(nextX, nextY)) {
-                    prevX = currX;
-                    prevY = currY;
-                    currX = nextX;
-                    currY = nextY;
-                    nextX = currX + axis.getX() * Math.pow(2, i);
-                    nextY = currY + axis.getY() * Math.pow(2, i);
-                    i++;
-                }
-                double minX = prevX;
-                double maxX = nextX;
-                double minY = prevY;
-                double maxY = nextY;
-                Solver1D solver = new GoldenRatioSolver();
-                solver.setF(a -> f.apply(minX * (1 - a) + maxX * a, minY * (1 - a) + maxY * a));
-                PointDouble res = solver.solve(0, 1);
-                PointDouble point = new PointDouble(maxX * res.getX() + minX * (1 - res.getX()), maxY * res.getX() + minY * (1 - res.getX()));
-                return point;
-            }
-            nextX = currX - axis.getX() * Math.pow(2, i - 1);
-            nextY = currY - axis.getY() * Math.pow(2, i - 1);
-            if (f.apply(currX, currY) > f.apply(nextX, nextY)) {
-                //Negative direction
-                while (f.apply(currX, currY) >= f.apply(nextX, nextY)) {
-                    prevX = currX;
-                    prevY = currY;
-                    currX = nextX;
-                    currY = nextY;
-                    nextX = currX - axis.getX() * Math.pow(2, i);
-                    nextY = currY - axis.getY() * Math.pow(2, i);
-                    i++;
-                }
-                double minX = prevX;
-                double maxX = nextX;
-                double minY = prevY;
-                double maxY = nextY;
-                Solver1D solver = new GoldenRatioSolver();
-                solver.setF(a -> f.apply(minX * (1 - a) + maxX * a, minY * (1 - a) + maxY * a));
-                PointDouble res = solver.solve(0, 1);
-                PointDouble point = new PointDouble(maxX * res.getX() + minX * (1 - res.getX()), maxY * res.getX() + minY * (1 - res.getX()));
-                return point;
-            }
-            
-            axis = axis.scale(0.5);
-        } while (axis.length() > EPSILON);
-        return startPoint;
+        double[] out = new double[2];
+        findMinOnAxis(of(f), axis.getX(), axis.getY(), startPoint.getX(), startPoint.getY(), out);
+        return new PointDouble(out[0], out[1]);
+    }
+    
+    /**Same as {@link LineSearch#findMinOnAxis(DoubleBinaryOperator, double, double, double, double, double[])}, use a LineSearch directly to reuse its buffers*/
+    public static void findMinOnAxis(DoubleBinaryOperator f, double axisX, double axisY, double startX, double startY, double[] out) {
+        findMinOnAxis(f, axisX, axisY, startX, startY, out, LINE_SEARCH);
+    }
+    
+    public static void findMinOnAxis(DoubleBinaryOperator f, double axisX, double axisY, double startX, double startY, double[] out, LineSearch.Method method) {
+        new LineSearch(method).findMinOnAxis(f, axisX, axisY, startX, startY, out);
     }
     
     public static List<Double> findMinOnAxis(Function<List<Double>, Double> f, List<Double> axis, List<Double> startPoint) {
-        if (axis.size() != startPoint.size()) {
-            throw new ArrayIndexOutOfBoundsException();
-        }
-        int size = axis.size();
-        int i = 0;
-        List<Double> prev = new ArrayList<>(startPoint);
-        List<Double> curr = new ArrayList<>(startPoint);
-        List<Double> next = new ArrayList<>(startPoint);
+        double[] out = new double[startPoint.size()];
+        findMinOnAxis(FunctionND.of(f), toArray(axis), toArray(startPoint), out);
+        return toList(out);
+    }
     
-        for (int j = 0; j < size; j++) {
-            next.set(j, curr.get(j) + axis.get(j) * Math.pow(2, i));
+    /**Same as {@link LineSearch#findMinOnAxis}, use a LineSearch directly to reuse its buffers*/
+    public static void findMinOnAxis(FunctionND f, double[] axis, double[] startPoint, double[] out) {
+        findMinOnAxis(f, axis, startPoint, out, LINE_SEARCH);
+    }
+    
+    public static void findMinOnAxis(FunctionND f, double[] axis, double[] startPoint, double[] out, LineSearch.Method method) {
+        new LineSearch(method).findMinOnAxis(f, axis, startPoint, out);
+    }
+    
+    private static DoubleBinaryOperator of(BiFunction<Double, Double, Double> f) {
+        return f::apply;
+    }
+    
+    public static double[] toArray(List<Double> list) {
+        double[] array = new double[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
         }
+        return array;
+    }
     
-        double length = 0;
-        for (int j = 0; j < size; j++) {
-            length += Math.pow(axis.get(j), 2);
+    public static List<Double> toList(double[] array) {
+        List<Double> list = new ArrayList<>(array.length);
+        for (double v : array) {
+            list.add(v);
         }
-        length = Math.sqrt(length);
-        
-        i++;
-        
-        do {
-            for (int j = 0; j < size; j++) {
-                next.set(j, curr.get(j) + axis.get(j) * Math.pow(2, i));
-            }
-            if (f.apply(curr) >= f.apply(next)) {
-                //Positive direction
-                while (f.apply(curr) > f.apply(next)) {
-                    for (int j = 0; j < size; j++) {
-                        prev.set(j, curr.get(j));
-                    }
-                    for (int j = 0; j < size; j++) {
-                        curr.set(j, next.get(j));
-                    }
-                    for (int j = 0; j < size; j++) {
-                        next.set(j, curr.get(j) + axis.get(j) * Math.pow(2, i));
-                    }
-                    i++;
-                }
-                List<Double> min = prev;
-                List<Double> max = next;
-
-                Solver1D solver = new GoldenRatioSolver();
-                solver.setF(a -> {
-                    List<Double> l = new ArrayList<>();
-                    for (int j = 0; j < size; j++) {
-                        l.add(min.get(j) * (1 - a) + max.get(j) * a);
-                    }
-                    return f.apply(l);
-                });
-                double res = solver.solve(0, 1).getX();
-                List<Double> point = new ArrayList<>();
-                for (int j = 0; j < size; j++) {
-                    point.add(max.get(j) * res + min.get(j) * (1 - res));
+        return list;
+    }
+    
+    /**
+     * Solves a linear system with Gaussian elimination and partial pivoting
+     * @param a Square matrix, modified in place
+     * @param b Right-hand side
+     * @return Solution x of a * x = b
+     * */
+    public static double[] solveLinear(double[][] a, double[] b) {
+        int size = b.length;
+        double[] x = b.clone();
+        for (int col = 0; col < size; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < size; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
                 }
-                return point;
             }
-            for (int j = 0; j < size; j++) {
-                next.set(j, curr.get(j) - axis.get(j) * Math.pow(2, i));
+            double[] tmpRow = a[col];
+            a[col] = a[pivot];
+            a[pivot] = tmpRow;
+            double tmp = x[col];
+            x[col] = x[pivot];
+            x[pivot] = tmp;
+            if (a[col][col] == 0) {
+                throw new ArithmeticException("Matrix is singular");
             }
-            if (f.apply(curr) > f.apply(next)) {
-                //Negative direction
-                while (f.apply(curr) >= f.apply(next)) {
-                    for (int j = 0; j < size; j++) {
-                        prev.set(j, curr.get(j));
-                    }
-                    for (int j = 0; j < size; j++) {
-                        curr.set(j, next.get(j));
-                    }
-                    for (int j = 0; j < size; j++) {
-                        next.set(j, curr.get(j) - axis.get(j) * Math.pow(2, i));
-                    }
-                    i++;
+            for (int row = col + 1; row < size; row++) {
+                double k = a[row][col] / a[col][col];
+                if (k == 0) {
+                    continue;
                 }
-                List<Double> min = prev;
-                List<Double> max = next;
-                
-                Solver1D solver = new GoldenRatioSolver();
-                solver.setF(a -> {
-                    List<Double> l = new ArrayList<>();
-                    for (int j = 0; j < size; j++) {
-                        l.add(min.get(j) * (1 - a) + max.get(j) * a);
-                    }
-                    return f.apply(l);
-                });
-                double res = solver.solve(0, 1).getX();
-                List<Double> point = new ArrayList<>();
-                for (int j = 0; j < size; j++) {
-                    point.add(max.get(j) * res + min.get(j) * (1 - res));
+                for (int j = col; j < size; j++) {
+                    a[row][j] -= k * a[col][j];
                 }
-                return point;
+                x[row] -= k * x[col];
             }
-    
-            for (int j = 0; j < size; j++) {
-                axis.set(j, axis.get(j) / 2.0);
+        }
+        for (int row = size - 1; row >= 0; row--) {
+            double sum = x[row];
+            for (int j = row + 1; j < size; j++) {
+                sum -= a[row][j] * x[j];
             }
-            length = 0;
-            for (int j = 0; j < size; j++) {
-                length += Math.pow(axis.get(j), 2);
+            x[row] = sum / a[row][row];
+        }
+        return x;
+    }
+    
+    /**
+     * Solves a tridiagonal linear system with the Thomas algorithm in O(n)
+     * @param lower Subdiagonal, lower[i] is the entry (i, i - 1)
+     * @param diagonal Main diagonal
+     * @param upper Superdiagonal, upper[i] is the entry (i, i + 1)
+     * @param b Right-hand side
+     * @param out Receives the solution, may be the same array as b
+     * */
+    public static void solveTridiagonal(double[] lower, double[] diagonal, double[] upper, double[] b, double[] out) {
+        solveTridiagonal(lower, diagonal, upper, b, out, new double[diagonal.length]);
+    }
+    
+    /**
+     * Same as {@link #solveTridiagonal(double[], double[], double[], double[], double[])} without allocating
+     * @param c Scratch of at least the size of the system, overwritten
+     * @return Smallest pivot of the elimination. A symmetric matrix is positive definite exactly when it's positive
+     * */
+    public static double solveTridiagonal(double[] lower, double[] diagonal, double[] upper, double[] b, double[] out, double[] c) {
+        int size = diagonal.length;
+        double prevC = 0;
+        double prevD = 0;
+        double minPivot = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double l = i == 0 ? 0 : lower[i];
+            double m = diagonal[i] - l * prevC;
+            if (m == 0) {
+                throw new ArithmeticException("Matrix is singular");
             }
-            length = Math.sqrt(length);
-        } while (length > EPSILON);
-        return startPoint;
+            minPivot = Math.min(minPivot, m);
+            prevC = i == size - 1 ? 0 : upper[i] / m;
+            prevD = (b[i] - l * prevD) / m;
+            c[i] = prevC;
+            out[i] = prevD;
+        }
+        for (int i = size - 2; i >= 0; i--) {
+            out[i] -= c[i] * out[i + 1];
+        }
+        return minPivot;
     }
 }
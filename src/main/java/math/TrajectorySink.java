@@ -0,0 +1,49 @@
+package math;
+
+/**
+ * Receives solution trajectories node by node, in increasing t.
+ * Nodes are handed over as primitives so that sinks only format or store what they need.
+ * Integrators write into it with node alone, framing the trajectory is left to their caller.
+ */
+public interface TrajectorySink {
+    /**Nodes evaluated at once by sample*/
+    int SAMPLE_CHUNK = 1024;
+    
+    /**Starts a new trajectory*/
+    default void begin() {}
+    
+    void node(double t, double x);
+    
+    /**Ends the current trajectory*/
+    default void end() {}
+    
+    /**Streams the nodes of the interpolator as one trajectory*/
+    static void nodes(GridInterpolator interpolator, TrajectorySink sink) {
+        sink.begin();
+        for (int i = 0; i < interpolator.size(); i++) {
+            sink.node(interpolator.getTime(i), interpolator.getValue(i));
+        }
+        sink.end();
+    }
+    
+    /**Streams steps + 1 evenly spaced nodes of the interpolator as one trajectory*/
+    static void sample(Interpolator interpolator, int steps, TrajectorySink sink) throws InterpolationException {
+        double dt = (interpolator.upper() - interpolator.lower()) / (double) steps;
+        //Evaluated in chunks, so long trajectories are still streamed in bounded memory
+        double[] t = new double[Math.min(steps + 1, SAMPLE_CHUNK)];
+        double[] x = new double[t.length];
+        sink.begin();
+        for (int from = 0; from <= steps; from += t.length) {
+            int count = Math.min(t.length, steps + 1 - from);
+            double[] chunk = count == t.length ? t : new double[count];
+            for (int i = 0; i < count; i++) {
+                chunk[i] = interpolator.lower() + (from + i) * dt;
+            }
+            interpolator.evaluate(chunk, x);
+            for (int i = 0; i < count; i++) {
+                sink.node(chunk[i], x[i]);
+            }
+        }
+        sink.end();
+    }
+}
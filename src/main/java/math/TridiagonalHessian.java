@@ -0,0 +1,12 @@
+package math;
+
+/**Hessian of a function whose coordinates only interact with their neighbours*/
+public interface TridiagonalHessian {
+    /**
+     * Fills in the Hessian at point
+     * @param lower Subdiagonal, lower[i] is the entry (i, i - 1), lower[0] is unused
+     * @param diagonal Main diagonal
+     * @param upper Superdiagonal, upper[i] is the entry (i, i + 1), the last one is unused
+     * */
+    void hessian(double[] point, double[] lower, double[] diagonal, double[] upper);
+}
@@ -0,0 +1,115 @@
+package math;
+
+import trace.Level;
+import trace.TraceEvent;
+import trace.Tracer;
+
+/**
+ * Damped Newton's method for functions with a tridiagonal Hessian, each step is solved with the Thomas algorithm in O(n).
+ * Falls back to the steepest descent direction where the Hessian isn't positive definite, which shows as a non-positive pivot.
+ * The Hessian is assumed symmetric, as the Hessian of a discretized functional is.
+ */
+public class TridiagonalNewtonSolver extends SolverND {
+    private static final int I_MAX = 64;
+    private static final int DAMPING_MAX = 32;
+    private static final double ARMIJO = 1e-4;
+    private static final TraceEvent STEP = new TraceEvent("step", "value", "damping", "step");
+    private TridiagonalHessian hessian;
+    
+    public TridiagonalHessian getHessian() {
+        return hessian;
+    }
+    
+    public void setHessian(TridiagonalHessian hessian) {
+        this.hessian = hessian;
+    }
+    
+    @Override
+    protected double[] solveInternal(double[] data) {
+        if (hessian == null) {
+            throw new IllegalStateException("Hessian is not set");
+        }
+        int size = data.length;
+        double[] grad = new double[size];
+        double[] lower = new double[size];
+        double[] diagonal = new double[size];
+        double[] upper = new double[size];
+        double[] step = new double[size];
+        double[] next = new double[size];
+        double[] scratch = new double[size];
+        double[] tmp;
+        
+        double[] curr = data;
+        double value = apply(curr);
+        addPoint(curr);
+        int i = 0;
+        while (i < I_MAX) {
+            gradient(curr, grad);
+            hessian.hessian(curr, lower, diagonal, upper);
+            for (int j = 0; j < size; j++) {
+                step[j] = -grad[j];
+            }
+            double slope = 0;
+            try {
+                //Non-positive pivots mean the Hessian isn't positive definite, its step is not taken even if it descends
+                if (SolverUtils.solveTridiagonal(lower, diagonal, upper, step, step, scratch) > 0) {
+                    for (int j = 0; j < size; j++) {
+                        slope += grad[j] * step[j];
+                    }
+                }
+            }
+            catch (ArithmeticException ignored) {}
+            if (!(slope < 0)) {
+                slope = 0;
+                for (int j = 0; j < size; j++) {
+                    step[j] = -grad[j];
+                    slope -= step[j] * step[j];
+                }
+            }
+            if (slope == 0) {
+                break;
+            }
+            
+            //Backtracking until the decrease is sufficient
+            double alpha = 1;
+            boolean accepted = false;
+            double nextValue = value;
+            for (int d = 0; d < DAMPING_MAX; d++) {
+                for (int j = 0; j < size; j++) {
+                    next[j] = curr[j] + alpha * step[j];
+                }
+                nextValue = apply(next);
+                if (nextValue <= value + ARMIJO * alpha * slope) {
+                    accepted = true;
+                    break;
+                }
+                alpha /= 2;
+            }
+            if (!accepted) {
+                break;
+            }
+            
+            double norm = 0;
+            for (int j = 0; j < size; j++) {
+                norm += Math.pow(alpha * step[j], 2);
+            }
+            norm = Math.sqrt(norm);
+            
+            Tracer tracer = getTracer();
+            if (tracer.begin(Level.DEBUG, STEP, i)) {
+                tracer.add(nextValue).add(alpha).add(norm).emit();
+            }
+            tmp = curr;
+            curr = next;
+            next = tmp;
+            value = nextValue;
+            addPoint(curr);
+            progress(i, curr, value);
+            i++;
+            if (norm <= EPSILON * EPSILON) {
+                break;
+            }
+        }
+        return curr;
+    }
+}
@@ -1,9 +1,60 @@
 package math;
 
+import metrics.SolveMetrics;
+
 import java.util.List;
 import java.util.function.Function;
 
 public interface VariationalSolver {
     public static final double EPSILON = 0.001;
-    public List<Interpolator> solve(Function<List<Double>, Double> function, PointDouble start, PointDouble end);
+    public List<Interpolator> solve(Integrand function, PointDouble start, PointDouble end);
+    
+    /**
+     * Solves like {@link #solve(Integrand, PointDouble, PointDouble)}, writing trajectories into sink as they are produced
+     * and the solution last. Solvers that don't stream write the returned trajectories in order once the solve is done,
+     * the nodes of grids and {@link BallisticSolver#STEPS} samples of other interpolators
+     * @param sink Called on the thread running the solve
+     * */
+    public default List<Interpolator> solve(Integrand function, PointDouble start, PointDouble end, TrajectorySink sink) {
+        List<Interpolator> res = solve(function, start, end);
+        for (Interpolator trajectory : res) {
+            if (trajectory instanceof GridInterpolator) {
+                TrajectorySink.nodes((GridInterpolator) trajectory, sink);
+                continue;
+            }
+            try {
+                TrajectorySink.sample(trajectory, BallisticSolver.STEPS, sink);
+            }
+            catch (InterpolationException e) {
+                //Samples stay inside the interpolator's own bounds
+                throw new IllegalStateException(e);
+            }
+        }
+        return res;
+    }
+    
+    /**
+     * Asks a running solve to stop, may be called from any thread. Solvers that support it throw
+     * {@link java.util.concurrent.CancellationException} from solve within one iteration, the rest finish normally.
+     * A cancel between solves stops the next one. The request is cleared when a solve ends, so the solver can be reused
+     * */
+    public default void cancel() {}
+    
+    /**
+     * Receives the current trajectory as the solve goes on, on the thread running it. Throwing
+     * {@link java.util.concurrent.CancellationException} from the listener stops the solve. Ignored by solvers that don't report progress
+     * */
+    public default void setListener(ProgressListener listener) {}
+    
+    /**
+     * @return Counters and phase times of the last solve, overwritten by the next one. Null for solvers that don't collect them.
+     * Solvers that do also record every finished solve into {@link metrics.MetricsRegistry#getDefault()}
+     * */
+    public default SolveMetrics getMetrics() {
+        return null;
+    }
+    
+    public default List<Interpolator> solve(Function<List<Double>, Double> function, PointDouble start, PointDouble end) {
+        return solve(Integrand.of(function), start, end);
+    }
 }
@@ -0,0 +1,15 @@
+package metrics;
+
+/**Quantities counted during a solve*/
+public enum Counter {
+    /**Calls of the objective or the integrand*/
+    EVALUATIONS,
+    /**Outer iterations, a sweep over all coordinates for Gauss-Seidel and a Newton update for shooting*/
+    ITERATIONS,
+    /**1D searches along a line or a coordinate*/
+    LINE_SEARCHES,
+    /**Trajectories integrated by the shooting solvers*/
+    PROBES,
+    /**Grids solved by the direct solver*/
+    LEVELS
+}
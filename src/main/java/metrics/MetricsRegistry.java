@@ -0,0 +1,136 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Histograms of the counters and phase times of finished solves, safe to record into from any thread.
+ * Solvers record into the default registry, which can be exported over JMX with {@link #register()}.
+ */
+public class MetricsRegistry implements SolverMetricsMXBean {
+    public static final String OBJECT_NAME = "ionshield.variational:type=SolverMetrics";
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final Phase[] PHASES = Phase.values();
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    
+    private final LongAdder solves = new LongAdder();
+    private final Histogram[] counters = new Histogram[COUNTERS.length];
+    private final Histogram[] phases = new Histogram[PHASES.length];
+    
+    public MetricsRegistry() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Histogram();
+        }
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Histogram();
+        }
+    }
+    
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+    
+    public void record(SolveMetrics metrics) {
+        solves.increment();
+        for (Counter counter : COUNTERS) {
+            counters[counter.ordinal()].record(metrics.get(counter));
+        }
+        for (Phase phase : PHASES) {
+            phases[phase.ordinal()].record(metrics.getNanos(phase));
+        }
+    }
+    
+    /**@return Counts per solve*/
+    public Histogram getHistogram(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+    
+    /**@return Nanoseconds per solve*/
+    public Histogram getHistogram(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+    
+    /**Registers this registry with the platform MBean server under {@link #OBJECT_NAME}, unless one already is*/
+    public void register() throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        }
+        catch (InstanceAlreadyExistsException ignored) {}
+    }
+    
+    @Override
+    public long getSolves() {
+        return solves.sum();
+    }
+    
+    @Override
+    public Map<String, Double> getCounterMeans() {
+        return counterMap(Histogram::getMean);
+    }
+    
+    @Override
+    public Map<String, Long> getCounterPercentiles95() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) {
+            res.put(counter.name().toLowerCase(), getHistogram(counter).getPercentile(0.95));
+        }
+        return res;
+    }
+    
+    @Override
+    public Map<String, Long> getCounterMaxima() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) {
+            res.put(counter.name().toLowerCase(), getHistogram(counter).getMax());
+        }
+        return res;
+    }
+    
+    @Override
+    public Map<String, Double> getPhaseMeansMillis() {
+        return phaseMap(h -> h.getMean() / 1e6);
+    }
+    
+    @Override
+    public Map<String, Double> getPhasePercentiles95Millis() {
+        return phaseMap(h -> h.getPercentile(0.95) / 1e6);
+    }
+    
+    @Override
+    public Map<String, Double> getPhaseMaximaMillis() {
+        return phaseMap(h -> h.getMax() / 1e6);
+    }
+    
+    @Override
+    public void reset() {
+        solves.reset();
+        for (Histogram histogram : counters) {
+            histogram.reset();
+        }
+        for (Histogram histogram : phases) {
+            histogram.reset();
+        }
+    }
+    
+    private Map<String, Double> counterMap(ToDoubleFunction<Histogram> statistic) {
+        Map<String, Double> res = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) {
+            res.put(counter.name().toLowerCase(), statistic.applyAsDouble(getHistogram(counter)));
+        }
+        return res;
+    }
+    
+    private Map<String, Double> phaseMap(ToDoubleFunction<Histogram> statistic) {
+        Map<String, Double> res = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            res.put(phase.name().toLowerCase(), statistic.applyAsDouble(getHistogram(phase)));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,15 @@
+package metrics;
+
+/**Parts of a solve whose wall-clock time is measured*/
+public enum Phase {
+    /**The whole solve*/
+    SOLVE,
+    /**Minimizing the discretized functional of a grid*/
+    MINIMIZATION,
+    /**Building the next grid and its starting point*/
+    MESH,
+    /**Integrating trajectories*/
+    INTEGRATION,
+    /**Linear systems of Newton's method*/
+    LINEAR_SOLVE
+}
@@ -0,0 +1,74 @@
+package metrics;
+
+/**
+ * Counters and phase timers of a single solve, kept in primitive arrays so that updating them is an array store.
+ * Instances aren't thread safe, parallel work is counted separately and added by the solving thread.
+ */
+public class SolveMetrics {
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final Phase[] PHASES = Phase.values();
+    
+    private final long[] counts = new long[COUNTERS.length];
+    private final long[] nanos = new long[PHASES.length];
+    
+    public void increment(Counter counter) {
+        counts[counter.ordinal()]++;
+    }
+    
+    public void add(Counter counter, long amount) {
+        counts[counter.ordinal()] += amount;
+    }
+    
+    public long get(Counter counter) {
+        return counts[counter.ordinal()];
+    }
+    
+    /**
+     * Adds the time elapsed since start to the phase
+     * @param start Value of System.nanoTime() when the phase began
+     * */
+    public void stop(Phase phase, long start) {
+        nanos[phase.ordinal()] += System.nanoTime() - start;
+    }
+    
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+    
+    /**Adds the counts and times of other to this*/
+    public void add(SolveMetrics other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] += other.nanos[i];
+        }
+    }
+    
+    public void clear() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = 0;
+        }
+    }
+    
+    /**@return Non-zero counters and phases, times in milliseconds*/
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder();
+        for (Counter counter : COUNTERS) {
+            if (get(counter) != 0) {
+                res.append(res.length() == 0 ? "" : "; ").append(counter.name().toLowerCase()).append(" = ").append(get(counter));
+            }
+        }
+        for (Phase phase : PHASES) {
+            if (getNanos(phase) != 0) {
+                res.append(res.length() == 0 ? "" : "; ").append(phase.name().toLowerCase()).append(" = ")
+                        .append(String.format("%.1f ms", getNanos(phase) / 1e6));
+            }
+        }
+        return res.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import java.util.Map;
+
+/**Solve statistics aggregated by {@link MetricsRegistry}, maps are keyed by the lower case counter and phase names*/
+public interface SolverMetricsMXBean {
+    long getSolves();
+    
+    /**Mean count per solve*/
+    Map<String, Double> getCounterMeans();
+    
+    /**95th percentile of the count per solve*/
+    Map<String, Long> getCounterPercentiles95();
+    
+    Map<String, Long> getCounterMaxima();
+    
+    /**Mean milliseconds per solve*/
+    Map<String, Double> getPhaseMeansMillis();
+    
+    /**95th percentile of the milliseconds per solve*/
+    Map<String, Double> getPhasePercentiles95Millis();
+    
+    Map<String, Double> getPhaseMaximaMillis();
+    
+    void reset();
+}
@@ -0,0 +1,56 @@
+package output;
+
+import math.TrajectorySink;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**Writes nodes as comma separated lines of trajectory number, node number, t and x after a header line*/
+public class CsvTrajectorySink implements TrajectorySink, Closeable {
+    private final Writer writer;
+    private int trajectory = -1;
+    private int index;
+    
+    public CsvTrajectorySink(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        write("trajectory,i,t,x\n");
+    }
+    
+    @Override
+    public void begin() {
+        trajectory++;
+        index = 0;
+    }
+    
+    @Override
+    public void node(double t, double x) {
+        write(trajectory + "," + index++ + "," + t + "," + x + "\n");
+    }
+    
+    @Override
+    public void end() {
+        try {
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+    
+    private void write(String line) {
+        try {
+            writer.write(line);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package output;
+
+import math.IterateHistory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spills every iterate to a file through a fixed buffer, so memory stays bounded however long the solve.
+ * The little-endian layout is, per iterate, an int dimension followed by that many doubles.
+ * The file holds the iterates of the current solve and is truncated when the next one starts.
+ */
+public class FileHistory implements IterateHistory, Closeable {
+    public static final int BUFFER = 1 << 16;
+    
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private long count;
+    
+    public FileHistory(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    /**@return Iterates written since the last clear*/
+    public long getCount() {
+        return count;
+    }
+    
+    @Override
+    public void clear() {
+        buffer.clear();
+        count = 0;
+        try {
+            channel.truncate(0);
+            channel.position(0);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    public void add(double[] point) {
+        ensure(Integer.BYTES);
+        buffer.putInt(point.length);
+        for (double value : point) {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+        count++;
+    }
+    
+    /**Reads every iterate back from the file, which can be far larger than the memory the history itself uses*/
+    @Override
+    public List<double[]> getPoints() {
+        flush();
+        List<double[]> res = new ArrayList<>();
+        ByteBuffer read = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        read.flip();
+        long position = 0;
+        try {
+            for (long i = 0; i < count; i++) {
+                position = fill(read, position, Integer.BYTES);
+                double[] point = new double[read.getInt()];
+                for (int j = 0; j < point.length; j++) {
+                    position = fill(read, position, Double.BYTES);
+                    point[j] = read.getDouble();
+                }
+                res.add(point);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return res;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+    
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+    
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Makes at least bytes available in read, refilling it from the file at position
+     * @return Position in the file after the bytes read into the buffer
+     * */
+    private long fill(ByteBuffer read, long position, int bytes) throws IOException {
+        if (read.remaining() >= bytes) {
+            return position;
+        }
+        read.compact();
+        while (read.position() < bytes) {
+            int n = channel.read(read, position);
+            if (n < 0) {
+                throw new IOException("History file is shorter than its " + count + " iterates");
+            }
+            position += n;
+        }
+        read.flip();
+        return position;
+    }
+}
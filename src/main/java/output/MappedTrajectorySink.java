@@ -0,0 +1,85 @@
+package output;
+
+import math.TrajectorySink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes nodes into a memory-mapped file, for node counts too large to keep as text.
+ * The little-endian layout is, per trajectory, a long node count followed by that many pairs of doubles t, x.
+ * The file is mapped in chunks as it grows and truncated to the written length on close.
+ */
+public class MappedTrajectorySink implements TrajectorySink, Closeable {
+    public static final int CHUNK = 1 << 24;
+    
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long base;
+    //Chunk and offset of the count of the current trajectory, patched once it ends
+    private MappedByteBuffer countBuffer;
+    private int countOffset;
+    private long count;
+    
+    public MappedTrajectorySink(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = map(0);
+    }
+    
+    @Override
+    public void begin() {
+        ensure(Long.BYTES);
+        countBuffer = buffer;
+        countOffset = buffer.position();
+        buffer.putLong(0);
+        count = 0;
+    }
+    
+    @Override
+    public void node(double t, double x) {
+        ensure(2 * Double.BYTES);
+        buffer.putDouble(t);
+        buffer.putDouble(x);
+        count++;
+    }
+    
+    @Override
+    public void end() {
+        countBuffer.putLong(countOffset, count);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        long size = base + buffer.position();
+        buffer.force();
+        channel.truncate(size);
+        channel.close();
+    }
+    
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.force();
+        base += buffer.position();
+        try {
+            buffer = map(base);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private MappedByteBuffer map(long position) throws IOException {
+        MappedByteBuffer res = channel.map(FileChannel.MapMode.READ_WRITE, position, CHUNK);
+        res.order(ByteOrder.LITTLE_ENDIAN);
+        return res;
+    }
+}
@@ -0,0 +1,13 @@
+package trace;
+
+/**Verbosity of trace events, a tracer passes on the events at or below its own level*/
+public enum Level {
+    /**Nothing is traced, only meaningful as the level of a tracer*/
+    OFF,
+    /**Outcome of a solve*/
+    INFO,
+    /**One event per iteration*/
+    DEBUG,
+    /**Events within an iteration*/
+    TRACE
+}
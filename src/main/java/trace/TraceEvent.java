@@ -0,0 +1,63 @@
+package trace;
+
+/**
+ * Kind of trace event and the names of its fields, used to format recorded payloads.
+ * Field names ending with "[]" are vectors, stored in the payload as their length followed by the values.
+ */
+public class TraceEvent {
+    private static final String VECTOR = "[]";
+    
+    private final String name;
+    private final String[] fields;
+    private final boolean[] vectors;
+    
+    public TraceEvent(String name, String... fields) {
+        this.name = name;
+        this.fields = new String[fields.length];
+        this.vectors = new boolean[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            vectors[i] = fields[i].endsWith(VECTOR);
+            this.fields[i] = vectors[i] ? fields[i].substring(0, fields[i].length() - VECTOR.length()) : fields[i];
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getFieldCount() {
+        return fields.length;
+    }
+    
+    public String getField(int index) {
+        return fields[index];
+    }
+    
+    public boolean isVector(int index) {
+        return vectors[index];
+    }
+    
+    /**Appends "iteration) name: field = value; ..." to out*/
+    public void format(int iteration, double[] payload, int length, StringBuilder out) {
+        out.append(iteration).append(") ").append(name).append(':');
+        int k = 0;
+        for (int i = 0; i < fields.length && k < length; i++) {
+            out.append(i == 0 ? " " : "; ").append(fields[i]).append(" = ");
+            if (!vectors[i]) {
+                out.append(payload[k++]);
+                continue;
+            }
+            int size = (int) payload[k++];
+            out.append('[');
+            for (int j = 0; j < size; j++) {
+                out.append(j == 0 ? "" : ", ").append(payload[k++]);
+            }
+            out.append(']');
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
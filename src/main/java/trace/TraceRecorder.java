@@ -0,0 +1,98 @@
+package trace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the payloads of the last events in a ring buffer and formats them only when asked.
+ * Slots are reused, so once each has held its largest payload recording doesn't allocate.
+ * Recording and formatting may happen on different threads.
+ */
+public class TraceRecorder implements TraceSink {
+    public static final int CAPACITY = 1024;
+    
+    private final Level[] levels;
+    private final TraceEvent[] events;
+    private final int[] iterations;
+    private final double[][] payloads;
+    private final int[] lengths;
+    private int next;
+    private int size;
+    private long dropped;
+    
+    public TraceRecorder() {
+        this(CAPACITY);
+    }
+    
+    /**@param capacity Number of events kept, older ones are overwritten*/
+    public TraceRecorder(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity has to be positive");
+        }
+        levels = new Level[capacity];
+        events = new TraceEvent[capacity];
+        iterations = new int[capacity];
+        payloads = new double[capacity][];
+        lengths = new int[capacity];
+    }
+    
+    @Override
+    public synchronized void record(Level level, TraceEvent event, int iteration, double[] payload, int length) {
+        if (payloads[next] == null || payloads[next].length < length) {
+            payloads[next] = new double[length];
+        }
+        System.arraycopy(payload, 0, payloads[next], 0, length);
+        levels[next] = level;
+        events[next] = event;
+        iterations[next] = iteration;
+        lengths[next] = length;
+        next = (next + 1) % events.length;
+        if (size < events.length) {
+            size++;
+        }
+        else {
+            dropped++;
+        }
+    }
+    
+    public int getCapacity() {
+        return events.length;
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**@return Events overwritten since the last clear*/
+    public synchronized long getDropped() {
+        return dropped;
+    }
+    
+    public synchronized void clear() {
+        size = 0;
+        next = 0;
+        dropped = 0;
+    }
+    
+    /**@return Kept events formatted one per line, oldest first*/
+    public synchronized List<String> format() {
+        return format(Level.TRACE);
+    }
+    
+    /**@return Kept events at or below the level formatted one per line, oldest first*/
+    public synchronized List<String> format(Level level) {
+        List<String> res = new ArrayList<>(size);
+        StringBuilder line = new StringBuilder();
+        int first = (next - size + events.length) % events.length;
+        for (int k = 0; k < size; k++) {
+            int i = (first + k) % events.length;
+            if (levels[i].ordinal() > level.ordinal()) {
+                continue;
+            }
+            line.setLength(0);
+            events[i].format(iterations[i], payloads[i], lengths[i], line);
+            res.add(line.toString());
+        }
+        return res;
+    }
+}
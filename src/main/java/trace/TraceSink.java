@@ -0,0 +1,10 @@
+package trace;
+
+/**Receives the events passed on by a tracer*/
+public interface TraceSink {
+    /**
+     * @param payload Values of the event as laid out by {@link TraceEvent}, reused by the tracer after the call
+     * @param length Number of values in payload
+     * */
+    void record(Level level, TraceEvent event, int iteration, double[] payload, int length);
+}
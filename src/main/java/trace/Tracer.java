@@ -0,0 +1,98 @@
+package trace;
+
+/**
+ * Passes events with primitive payloads to a sink. An event is written in place:
+ * <pre>
+ * if (tracer.begin(Level.DEBUG, STEP, i)) {
+ *     tracer.add(value).add(point).emit();
+ * }
+ * </pre>
+ * While the level is {@link Level#OFF} or no sink is set, begin is a comparison and nothing is allocated or formatted.
+ * Instances aren't thread safe, each solver owns one.
+ */
+public class Tracer {
+    private Level level = Level.OFF;
+    private TraceSink sink;
+    
+    //The event being written
+    private Level eventLevel;
+    private TraceEvent event;
+    private int iteration;
+    private int fields;
+    private double[] payload = new double[16];
+    private int length;
+    
+    public Level getLevel() {
+        return level;
+    }
+    
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+    
+    public TraceSink getSink() {
+        return sink;
+    }
+    
+    public void setSink(TraceSink sink) {
+        this.sink = sink;
+    }
+    
+    /**@return Whether events of the level reach the sink*/
+    public boolean isEnabled(Level level) {
+        return level.ordinal() <= this.level.ordinal() && sink != null;
+    }
+    
+    /**
+     * Starts writing an event, its fields are then added in order and it's passed on by {@link #emit()}
+     * @return False if the level is disabled, then the event must not be written
+     * */
+    public boolean begin(Level level, TraceEvent event, int iteration) {
+        if (!isEnabled(level)) {
+            return false;
+        }
+        this.eventLevel = level;
+        this.event = event;
+        this.iteration = iteration;
+        fields = 0;
+        length = 0;
+        return true;
+    }
+    
+    public Tracer add(double value) {
+        reserve(1);
+        payload[length++] = value;
+        fields++;
+        return this;
+    }
+    
+    /**Adds a vector field, the values are copied*/
+    public Tracer add(double[] values) {
+        reserve(values.length + 1);
+        payload[length++] = values.length;
+        System.arraycopy(values, 0, payload, length, values.length);
+        length += values.length;
+        fields++;
+        return this;
+    }
+    
+    public void emit() {
+        if (event == null) {
+            throw new IllegalStateException("No event was begun");
+        }
+        if (fields != event.getFieldCount()) {
+            throw new IllegalStateException("Event " + event + " has " + event.getFieldCount() + " fields, " + fields + " were added");
+        }
+        TraceEvent emitted = event;
+        event = null;
+        sink.record(eventLevel, emitted, iteration, payload, length);
+    }
+    
+    private void reserve(int count) {
+        if (length + count > payload.length) {
+            double[] grown = new double[Math.max(payload.length * 2, length + count)];
+            System.arraycopy(payload, 0, grown, 0, length);
+            payload = grown;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package math;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**Inner loops of the solvers run on primitives, measured with the allocation counter of the current thread*/
+public class AllocationTest {
+    private static final Integrand INTEGRAND = ExpressionCompiler.compile("f(t, x, z) = (1+z^2)/(2*x)");
+    private static final int WARMUP = 20000;
+    private static final int CALLS = 10000;
+    private static final int SOLVE_WARMUP = 50;
+    private static final int SOLVES = 10;
+    
+    private static com.sun.management.ThreadMXBean threads;
+    private static long evaluations;
+    
+    @BeforeClass
+    public static void setUpClass() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    
+    @Test
+    public void functionalValueDoesNotAllocate() {
+        DiscreteFunctional functional = new DiscreteFunctional(INTEGRAND, new PointDouble(0, 1), new PointDouble(1, 2), 100);
+        double[] values = startingPoint(100);
+        assertTrue(allocatedPerCall(() -> functional.apply(values)) < 1);
+    }
+    
+    @Test
+    public void functionalGradientDoesNotAllocate() {
+        DiscreteFunctional functional = new DiscreteFunctional(INTEGRAND, new PointDouble(0, 1), new PointDouble(1, 2), 100);
+        double[] values = startingPoint(100);
+        double[] gradient = new double[100];
+        assertTrue(allocatedPerCall(() -> functional.gradient(values, gradient)) < 1);
+    }
+    
+    @Test
+    public void integrationOnlyAllocatesTheEndState() {
+        EulerIntegrator integrator = new EulerIntegrator(1000);
+        //The returned state (x, z) is the only allocation, far less than one object per step
+        assertTrue(allocatedPerCall(() -> integrator.integrate(INTEGRAND, 0, 1, 1, 1, null)) < 100);
+    }
+    
+    @Test
+    public void directSolversAllocateNothingPerEvaluation() {
+        Integrand counted = counted(INTEGRAND);
+        for (DirectSolver.Method method : DirectSolver.Method.values()) {
+            DirectSolver solver = new DirectSolver(50, method);
+            //Solver state is allocated per solve, boxing the integrand would cost about 80 bytes per evaluation
+            double perEvaluation = allocatedPerSolve(() -> solver.solve(counted, new PointDouble(0, 1), new PointDouble(1, 2))) / evaluationsPerSolve();
+            assertTrue(method + ": " + perEvaluation, perEvaluation < 4);
+        }
+    }
+    
+    @Test
+    public void ballisticSolverOnlyAllocatesItsTrajectories() {
+        Integrand counted = counted(ExpressionCompiler.compile("f(t, x, z) = 25*x"));
+        for (OdeIntegrator integrator : new OdeIntegrator[]{new EulerIntegrator(BallisticSolver.STEPS), new DormandPrinceIntegrator()}) {
+            BallisticSolver solver = new BallisticSolver(integrator, null, 0);
+            List<Interpolator> trajectories = solver.solve(counted, new PointDouble(0, 1), new PointDouble(1, 2));
+            long nodes = 0;
+            for (Interpolator trajectory : trajectories) {
+                nodes += ((GridInterpolator) trajectory).size();
+            }
+            //Each returned node is a time and a value, 16 bytes, nothing is allocated per integration step besides
+            double perNode = allocatedPerSolve(() -> solver.solve(counted, new PointDouble(0, 1), new PointDouble(1, 2))) / nodes;
+            assertTrue(integrator.getClass().getSimpleName() + ": " + perNode, perNode < 24);
+        }
+    }
+    
+    @Test
+    public void boxedAdapterMatchesPrimitiveIntegrand() {
+        Integrand boxed = Integrand.of(l -> (1 + l.get(2) * l.get(2)) / (2 * l.get(1)));
+        assertEquals(INTEGRAND.apply(0.3, 1.5, -2), boxed.apply(0.3, 1.5, -2), 0);
+    }
+    
+    private static double[] startingPoint(int size) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 1 + i / (double) size;
+        }
+        return values;
+    }
+    
+    private static Integrand counted(Integrand integrand) {
+        return (t, x, z) -> {
+            evaluations++;
+            return integrand.apply(t, x, z);
+        };
+    }
+    
+    private static double evaluationsPerSolve() {
+        return evaluations / (double) SOLVES;
+    }
+    
+    /**@return Bytes allocated by the current thread per solve, evaluations are counted over the measured solves*/
+    private static double allocatedPerSolve(Runnable solve) {
+        for (int i = 0; i < SOLVE_WARMUP; i++) {
+            solve.run();
+        }
+        evaluations = 0;
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < SOLVES; i++) {
+            solve.run();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / (double) SOLVES;
+    }
+    
+    /**@return Bytes allocated by the current thread per call of action, after it has been compiled*/
+    private static double allocatedPerCall(Runnable action) {
+        for (int i = 0; i < WARMUP; i++) {
+            action.run();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++) {
+            action.run();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / (double) CALLS;
+    }
+}
@@ -0,0 +1,49 @@
+package math;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BallisticSolverTest {
+    private static final PointDouble START = new PointDouble(0, 1);
+    private static final PointDouble END = new PointDouble(1, 2);
+    
+    @Test
+    public void probesThatBlowUpDontAbortTheSolve() throws InterpolationException {
+        //Some z0 drive x to zero, where the right-hand side is singular and the adaptive integrator stalls
+        Integrand integrand = ExpressionCompiler.compile("f(t, x, z) = -(1+z^2)/(2*x)");
+        for (ForkJoinPool pool : new ForkJoinPool[]{null, ForkJoinPool.commonPool()}) {
+            List<Interpolator> trajectories = new BallisticSolver(new DormandPrinceIntegrator(), pool).solve(integrand, START, END);
+            assertEquals(END.getY(), last(trajectories).evaluate(END.getX()), 1e-3);
+        }
+    }
+    
+    @Test
+    public void lastTrajectoryHitsTheEndPoint() throws InterpolationException {
+        Integrand integrand = ExpressionCompiler.compile("f(t, x, z) = 25*x");
+        for (OdeIntegrator integrator : new OdeIntegrator[]{new EulerIntegrator(BallisticSolver.STEPS), new DormandPrinceIntegrator()}) {
+            for (LineSearch.Method method : LineSearch.Method.values()) {
+                BallisticSolver solver = new BallisticSolver(integrator, null);
+                solver.setLineSearchMethod(method);
+                List<Interpolator> trajectories = solver.solve(integrand, START, END);
+                double error = Math.abs(END.getY() - last(trajectories).evaluate(END.getX()));
+                //x(1) changes by about 15 per unit of z0 here, so the line search tolerance allows errors of a few 1e-3
+                assertTrue(method + " end point error " + error, error < 5e-3);
+                if (method == LineSearch.Method.BRENT) {
+                    //Brent returns its best probe, golden section the middle of its last interval
+                    for (Interpolator trajectory : trajectories) {
+                        assertTrue(error <= Math.abs(END.getY() - trajectory.evaluate(END.getX())));
+                    }
+                }
+            }
+        }
+    }
+    
+    private static Interpolator last(List<Interpolator> trajectories) {
+        return trajectories.get(trajectories.size() - 1);
+    }
+}
@@ -0,0 +1,98 @@
+package math;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BatchSolverTest {
+    private static final int THREADS = 4;
+    private static final Integrand BRACHISTOCHRONE = ExpressionCompiler.compile("f(t, x, z) = sqrt((1+z^2)/x)");
+    
+    private static volatile double sink;
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void resultsKeepInputOrderUnderLoad() throws InterruptedException {
+        List<BoundaryProblem> problems = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            problems.add(new BoundaryProblem(new PointDouble(0, i), new PointDouble(1, -i)));
+        }
+        AtomicInteger solvers = new AtomicInteger();
+        AtomicInteger integrands = new AtomicInteger();
+        Map<Thread, Integrand> threadIntegrands = new ConcurrentHashMap<>();
+        BatchSolver batch = new BatchSolver(() -> {
+            solvers.incrementAndGet();
+            return (VariationalSolver) (integrand, start, end) -> {
+                //Each thread has to keep seeing the integrand created for it
+                assertSame(threadIntegrands.computeIfAbsent(Thread.currentThread(), t -> integrand), integrand);
+                //Uneven work, so problems finish out of order
+                double sum = 0;
+                for (int k = 0; k < (int) start.getY() % 13 * 200; k++) {
+                    sum += integrand.apply(k, start.getY(), end.getY());
+                }
+                sink = sum;
+                return Collections.singletonList(new GridInterpolator(start.getX(), end.getX(), new double[]{start.getY(), end.getY()}));
+            };
+        }, () -> {
+            integrands.incrementAndGet();
+            return (t, x, z) -> x + z;
+        }, executor);
+        
+        List<List<Interpolator>> results = batch.solve(problems);
+        assertEquals(problems.size(), results.size());
+        for (int i = 0; i < problems.size(); i++) {
+            GridInterpolator result = (GridInterpolator) results.get(i).get(0);
+            assertEquals(problems.get(i).getStart().getY(), result.getValue(0), 0);
+            assertEquals(problems.get(i).getEnd().getY(), result.getValue(1), 0);
+        }
+        assertTrue(solvers.get() <= THREADS);
+        assertTrue(integrands.get() <= THREADS);
+        
+        //The same threads keep their solvers for the next batch
+        batch.solve(problems.subList(0, 100));
+        assertTrue(solvers.get() <= THREADS);
+    }
+    
+    @Test
+    public void matchesSerialSolves() throws InterruptedException, InterpolationException {
+        List<BoundaryProblem> problems = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            problems.add(new BoundaryProblem(new PointDouble(0, 0.5 + i * 0.02), new PointDouble(1, 0.5 + (31 - i) * 0.02)));
+        }
+        BatchSolver batch = new BatchSolver(() -> new DirectSolver(8, DirectSolver.Method.NEWTON), BRACHISTOCHRONE, executor);
+        List<List<Interpolator>> results = batch.solve(problems.stream());
+        VariationalSolver serial = new DirectSolver(8, DirectSolver.Method.NEWTON);
+        for (int i = 0; i < problems.size(); i++) {
+            BoundaryProblem problem = problems.get(i);
+            Interpolator expected = serial.solve(BRACHISTOCHRONE, problem.getStart(), problem.getEnd()).get(0);
+            Interpolator actual = results.get(i).get(0);
+            for (double t = 0; t <= 1; t += 0.125) {
+                assertEquals("problem " + i + " at " + t, expected.evaluate(t), actual.evaluate(t), 1e-3);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package math;
+
+import org.junit.Test;
+import org.mariuszgromada.math.mxparser.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**Compiled integrands against mXparser, which stays the reference for every definition*/
+public class ExpressionCompilerTest {
+    private static final double[] SAMPLES = {-2.5, -1, -0.3, 0.1, 0.7, 1, 1.9, 3.2};
+    
+    @Test
+    public void compiledMatchesParser() {
+        String[] expressions = {
+                "(1+z^2)/(2*x)",
+                "sqrt((1+z^2)/abs(x))",
+                "x*z - t/3 + 2.5e-1",
+                "-x^3 - (z-t)^2 * -2",
+                "x^-2 + z^0",
+                "sin(t)*cos(x) + tan(z/4)",
+                "exp(-x^2) + ln(abs(z)+1)",
+                "pi*x - e*z",
+                "2^3^2 - x/t/z",
+                "((t))*(((x)))+z"
+        };
+        for (String expression : expressions) {
+            assertEquivalent("f(t, x, z) = " + expression);
+        }
+    }
+    
+    @Test
+    public void argumentsFollowTheHeader() {
+        assertEquivalent("g(a, b, c) = a - 2*b + 3*c");
+        assertEquivalent("f(z, x, t) = z - 2*x + 3*t");
+    }
+    
+    @Test
+    public void unsupportedDefinitionsFallBack() {
+        String[] definitions = {
+                "f(t, x, z) = sinh(x)",
+                "f(t, x, z) = min(x, z)",
+                "f(t, x, z) = x^0.5",
+                "f(t, x, z) = x^z",
+                "f(t, x, z) = x + y",
+                "f(t, x, z) = x!",
+                "f(t, x) = x",
+                "f(t, x, z) = (x",
+                "x + z"
+        };
+        for (String definition : definitions) {
+            assertNull(definition, ExpressionCompiler.compile(definition));
+        }
+        //The parser still takes the well formed ones the compiler rejects
+        for (String definition : new String[]{"f(t, x, z) = sinh(x)", "f(t, x, z) = min(x, z)", "f(t, x, z) = x^0.5", "f(t, x, z) = x^z"}) {
+            assertTrue(definition, new Function(definition).checkSyntax());
+        }
+    }
+    
+    private static void assertEquivalent(String definition) {
+        Integrand compiled = ExpressionCompiler.compile(definition);
+        assertNotNull(definition, compiled);
+        Function reference = new Function(definition);
+        for (double t : SAMPLES) {
+            for (double x : SAMPLES) {
+                for (double z : SAMPLES) {
+                    double expected = reference.calculate(t, x, z);
+                    double actual = compiled.apply(t, x, z);
+                    if (Double.isNaN(expected)) {
+                        assertTrue(definition, Double.isNaN(actual) || Double.isInfinite(actual));
+                    }
+                    else {
+                        assertEquals(definition + " at " + t + ", " + x + ", " + z, expected, actual, 1e-12 * Math.max(1, Math.abs(expected)));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package math;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LbfgsSolverTest {
+    
+    /**Extended Rosenbrock function, curved and badly scaled with its minimum at (1, ..., 1)*/
+    private static final FunctionND ROSENBROCK = new FunctionND() {
+        @Override
+        public double apply(double[] x) {
+            double res = 0;
+            for (int i = 0; i < x.length - 1; i++) {
+                res += 100 * Math.pow(x[i + 1] - x[i] * x[i], 2) + Math.pow(1 - x[i], 2);
+            }
+            return res;
+        }
+        
+        @Override
+        public void gradient(double[] x, double[] out) {
+            Arrays.fill(out, 0);
+            for (int i = 0; i < x.length - 1; i++) {
+                double r = x[i + 1] - x[i] * x[i];
+                out[i] += -400 * x[i] * r - 2 * (1 - x[i]);
+                out[i + 1] += 200 * r;
+            }
+        }
+    };
+    
+    private int iterations;
+    
+    @Test
+    public void memoryWrapsAround() {
+        double[] expected = new double[20];
+        Arrays.fill(expected, 1);
+        for (int memory : new int[]{1, 2, 3, LbfgsSolver.MEMORY}) {
+            double[] res = solve(new LbfgsSolver(memory), ROSENBROCK, rosenbrockStart(20));
+            //Far more iterations than pairs, so the ring buffers are overwritten many times over
+            assertTrue("memory " + memory + ": " + iterations + " iterations", iterations > 4 * memory);
+            assertTrue("memory " + memory, ROSENBROCK.apply(res) < 1e-7);
+            assertArrayEquals("memory " + memory, expected, res, 1e-3);
+        }
+    }
+    
+    @Test
+    public void deeperMemoryNeedsFewerIterations() {
+        solve(new LbfgsSolver(1), ROSENBROCK, rosenbrockStart(20));
+        int shallow = iterations;
+        solve(new LbfgsSolver(LbfgsSolver.MEMORY), ROSENBROCK, rosenbrockStart(20));
+        assertTrue(iterations + " vs " + shallow, iterations < shallow);
+    }
+    
+    @Test
+    public void convergesOnBadlyScaledQuadratic() {
+        //Condition number 1e6 along the diagonal directions, minimum at (1, 1)
+        FunctionND f = new FunctionND() {
+            @Override
+            public double apply(double[] x) {
+                return 1e6 * Math.pow(x[0] + x[1] - 2, 2) + Math.pow(x[0] - x[1], 2);
+            }
+            
+            @Override
+            public void gradient(double[] x, double[] out) {
+                out[0] = 2e6 * (x[0] + x[1] - 2) + 2 * (x[0] - x[1]);
+                out[1] = 2e6 * (x[0] + x[1] - 2) - 2 * (x[0] - x[1]);
+            }
+        };
+        double[] res = solve(new LbfgsSolver(), f, new double[]{-3, 5});
+        assertArrayEquals(new double[]{1, 1}, res, 1e-6);
+        assertTrue("iterations " + iterations, iterations < 50);
+    }
+    
+    @Test
+    public void needsFewerEvaluationsThanGaussSeidel() {
+        Integrand integrand = ExpressionCompiler.compile("f(t, x, z) = sqrt((1+z^2)/x)");
+        long[] evaluations = new long[1];
+        Integrand counted = (t, x, z) -> {
+            evaluations[0]++;
+            return integrand.apply(t, x, z);
+        };
+        DiscreteFunctional functional = new DiscreteFunctional(counted, new PointDouble(0, 0.707), new PointDouble(1, 0.707), 16);
+        double[] start = new double[16];
+        Arrays.fill(start, 0.5);
+        
+        GaussSeidelSolver gaussSeidel = new GaussSeidelSolver();
+        gaussSeidel.setIncremental(functional);
+        double gaussSeidelValue = functional.apply(solve(gaussSeidel, functional, start));
+        long gaussSeidelEvaluations = evaluations[0];
+        evaluations[0] = 0;
+        double value = functional.apply(solve(new LbfgsSolver(), functional, start));
+        
+        //Integrand calls include those of the analytic gradient, so both solvers are charged the same way
+        assertTrue(evaluations[0] + " vs " + gaussSeidelEvaluations, evaluations[0] < gaussSeidelEvaluations);
+        assertTrue(value <= gaussSeidelValue + 1e-9);
+    }
+    
+    private double[] solve(SolverND solver, FunctionND f, double[] start) {
+        iterations = 0;
+        solver.setFunction(f);
+        solver.setListener(e -> iterations++);
+        return solver.solve(start);
+    }
+    
+    private static double[] rosenbrockStart(int size) {
+        double[] start = new double[size];
+        for (int i = 0; i < size; i++) {
+            start[i] = i % 2 == 0 ? -1.2 : 1;
+        }
+        return start;
+    }
+}
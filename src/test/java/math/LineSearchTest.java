@@ -0,0 +1,51 @@
+package math;
+
+import org.junit.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LineSearchTest {
+    private int evaluations;
+    
+    @Test
+    public void brentBracketsFarMinimum() {
+        double res = new LineSearch(LineSearch.Method.BRENT).findMin(counted(quartic(1e4)), 1, 0);
+        assertEquals(1e4, res, 1e-2);
+        //Parabolic extrapolation reaches the bracket in a few steps where doubling would take a dozen
+        assertTrue("evaluations " + evaluations, evaluations <= 25);
+    }
+    
+    @Test
+    public void brentNeedsFewerEvaluationsThanGoldenRatio() {
+        for (double target : new double[]{3, 100, 1e4}) {
+            double brent = new LineSearch(LineSearch.Method.BRENT).findMin(counted(quartic(target)), 1, 0);
+            int brentEvaluations = evaluations;
+            double golden = new LineSearch(LineSearch.Method.GOLDEN_RATIO).findMin(counted(quartic(target)), 1, 0);
+            assertEquals(target, brent, 1e-2 * Math.max(1, target * 1e-3));
+            assertEquals(target, golden, 1e-2 * Math.max(1, target * 1e-3));
+            assertTrue(target + ": " + brentEvaluations + " vs " + evaluations, brentEvaluations < evaluations);
+        }
+    }
+    
+    @Test
+    public void brentStopsAtTheEdgeOfTheDomain() {
+        //Undefined below zero, the search must not stall on the NaN past the edge
+        double res = new LineSearch(LineSearch.Method.BRENT).findMin(counted(k -> k - 2 * Math.sqrt(k)), 1, 3);
+        assertEquals(1, res, 1e-3);
+    }
+    
+    private static DoubleUnaryOperator quartic(double target) {
+        return k -> (k - target) * (k - target) + 1e-3 * Math.pow(k - target, 4);
+    }
+    
+    private DoubleUnaryOperator counted(DoubleUnaryOperator f) {
+        evaluations = 0;
+        return k -> {
+            evaluations++;
+            return f.applyAsDouble(k);
+        };
+    }
+}
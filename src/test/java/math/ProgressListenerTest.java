@@ -0,0 +1,98 @@
+package math;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProgressListenerTest {
+    private static final PointDouble START = new PointDouble(0, 1);
+    private static final PointDouble END = new PointDouble(1, 2);
+    private static final Integrand INTEGRAND = ExpressionCompiler.compile("f(t, x, z) = 25*x");
+    
+    private int builds;
+    
+    private static VariationalSolver[] shootingSolvers() {
+        return new VariationalSolver[] {
+                new BallisticSolver(),
+                new BallisticSolver(new DormandPrinceIntegrator(), ForkJoinPool.commonPool()),
+                new MultipleShootingSolver(),
+                new NewtonShootingSolver()
+        };
+    }
+    
+    @Test
+    public void trajectoryIsBuiltOnceAndOnlyWhenAsked() {
+        ProgressEvent event = new ProgressEvent(0, new double[0], 0, 0, () -> {
+            builds++;
+            return new GridInterpolator(new double[] {0, 1}, new double[] {1, 2});
+        });
+        assertEquals(0, builds);
+        assertSame(event.getTrajectory(), event.getTrajectory());
+        assertEquals(1, builds);
+    }
+    
+    @Test
+    public void directTrajectoriesShowTheirOwnIterate() throws InterpolationException {
+        DirectSolver solver = new DirectSolver(20, DirectSolver.Method.NEWTON);
+        List<ProgressEvent> events = new ArrayList<>();
+        solver.setListener(events::add);
+        solver.solve(INTEGRAND, START, END);
+        assertTrue(events.size() > 1);
+        //Built after the solve, each from the iterate of its own iteration
+        for (ProgressEvent event : events) {
+            GridInterpolator trajectory = (GridInterpolator) event.getTrajectory();
+            double[] point = event.getPoint();
+            assertEquals(point.length + 2, trajectory.size());
+            for (int i = 0; i < point.length; i++) {
+                assertEquals(point[i], trajectory.getValue(i + 1), 0);
+            }
+        }
+    }
+    
+    @Test
+    public void shootingSolversPublishTheirTrajectories() {
+        for (VariationalSolver solver : shootingSolvers()) {
+            List<ProgressEvent> events = new ArrayList<>();
+            solver.setListener(events::add);
+            List<Interpolator> res = solver.solve(INTEGRAND, START, END);
+            String name = solver.getClass().getSimpleName();
+            assertFalse(name, events.isEmpty());
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(name, i, events.get(i).getIteration());
+                assertTrue(name, res.contains(events.get(i).getTrajectory()));
+            }
+            ProgressEvent last = events.get(events.size() - 1);
+            assertSame(name, res.get(res.size() - 1), last.getTrajectory());
+            assertTrue(name, last.getValue() < 1e-2);
+            assertTrue(name, last.getEvaluations() > 0);
+        }
+    }
+    
+    @Test
+    public void shootingSolversStopWhenTheListenerCancels() {
+        for (VariationalSolver solver : shootingSolvers()) {
+            solver.setListener(e -> {
+                throw new CancellationException();
+            });
+            try {
+                solver.solve(INTEGRAND, START, END);
+                fail(solver.getClass().getSimpleName());
+            }
+            catch (CancellationException e) {
+                //Expected
+            }
+            //The solver stays usable
+            solver.setListener(null);
+            assertFalse(solver.solve(INTEGRAND, START, END).isEmpty());
+        }
+    }
+}
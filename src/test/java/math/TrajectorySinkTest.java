@@ -0,0 +1,80 @@
+package math;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrajectorySinkTest {
+    private static final PointDouble START = new PointDouble(0, 1);
+    private static final PointDouble END = new PointDouble(1, 2);
+    
+    private long evaluations;
+    
+    /**Keeps the trajectories and, for each one, how many integrand evaluations had been made by its first node*/
+    private class RecordingSink implements TrajectorySink {
+        private final List<List<PointDouble>> trajectories = new ArrayList<>();
+        private final List<Long> evaluationsAtBegin = new ArrayList<>();
+        
+        @Override
+        public void begin() {
+            trajectories.add(new ArrayList<>());
+            evaluationsAtBegin.add(evaluations);
+        }
+        
+        @Override
+        public void node(double t, double x) {
+            trajectories.get(trajectories.size() - 1).add(new PointDouble(t, x));
+        }
+    }
+    
+    private Integrand counted(String definition) {
+        Integrand integrand = ExpressionCompiler.compile(definition);
+        return (t, x, z) -> {
+            evaluations++;
+            return integrand.apply(t, x, z);
+        };
+    }
+    
+    @Test
+    public void ballisticStreamsProbesWhileIntegrating() {
+        RecordingSink sink = new RecordingSink();
+        List<Interpolator> trajectories = new BallisticSolver(new EulerIntegrator(BallisticSolver.STEPS), null)
+                .solve(counted("f(t, x, z) = 25*x"), START, END, sink);
+        assertEquals(trajectories.size(), sink.trajectories.size());
+        //The last probe was written before most of the solve's evaluations were made
+        assertTrue(sink.evaluationsAtBegin.get(0) < evaluations);
+        assertTrue(sink.evaluationsAtBegin.get(sink.trajectories.size() - 1) < evaluations);
+        assertNodes((GridInterpolator) trajectories.get(trajectories.size() - 1), last(sink));
+    }
+    
+    @Test
+    public void directStreamsIteratesAndSolutionLast() {
+        RecordingSink sink = new RecordingSink();
+        DirectSolver solver = new DirectSolver(16, DirectSolver.Method.NEWTON);
+        solver.setMultilevel(true);
+        List<Interpolator> trajectories = solver.solve(counted("f(t, x, z) = sqrt((1+z^2)/x)"), START, END, sink);
+        assertTrue(sink.trajectories.size() > 2);
+        assertTrue(sink.evaluationsAtBegin.get(0) < evaluations);
+        assertNodes((GridInterpolator) trajectories.get(0), last(sink));
+        for (List<PointDouble> trajectory : sink.trajectories) {
+            assertEquals(START.getY(), trajectory.get(0).getY(), 0);
+            assertEquals(END.getY(), trajectory.get(trajectory.size() - 1).getY(), 0);
+        }
+    }
+    
+    private static List<PointDouble> last(RecordingSink sink) {
+        return sink.trajectories.get(sink.trajectories.size() - 1);
+    }
+    
+    private static void assertNodes(GridInterpolator expected, List<PointDouble> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(expected.getTime(i), actual.get(i).getX(), 0);
+            assertEquals(expected.getValue(i), actual.get(i).getY(), 0);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package math;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TridiagonalNewtonSolverTest {
+    
+    /**Sum of exp(x_i) - b_i x_i with springs between neighbours, strictly convex with an exact tridiagonal Hessian*/
+    private static class Chain implements FunctionND, TridiagonalHessian {
+        private final double[] b;
+        
+        private Chain(int size) {
+            b = new double[size];
+            for (int i = 0; i < size; i++) {
+                b[i] = 2 + Math.sin(i * 0.01);
+            }
+        }
+        
+        @Override
+        public double apply(double[] x) {
+            double res = 0;
+            for (int i = 0; i < x.length; i++) {
+                res += Math.exp(x[i]) - b[i] * x[i];
+                if (i > 0) {
+                    res += (x[i] - x[i - 1]) * (x[i] - x[i - 1]) / 2;
+                }
+            }
+            return res;
+        }
+        
+        @Override
+        public void gradient(double[] x, double[] out) {
+            for (int i = 0; i < x.length; i++) {
+                out[i] = Math.exp(x[i]) - b[i];
+                if (i > 0) {
+                    out[i] += x[i] - x[i - 1];
+                }
+                if (i < x.length - 1) {
+                    out[i] -= x[i + 1] - x[i];
+                }
+            }
+        }
+        
+        @Override
+        public void hessian(double[] x, double[] lower, double[] diagonal, double[] upper) {
+            for (int i = 0; i < x.length; i++) {
+                diagonal[i] = Math.exp(x[i]) + (i > 0 ? 1 : 0) + (i < x.length - 1 ? 1 : 0);
+                lower[i] = -1;
+                upper[i] = -1;
+            }
+        }
+    }
+    
+    @Test
+    public void convergesQuadraticallyOnLargeProblems() {
+        Chain chain = new Chain(100000);
+        TridiagonalNewtonSolver solver = new TridiagonalNewtonSolver();
+        solver.setFunction(chain);
+        solver.setHessian(chain);
+        List<Double> gradients = new ArrayList<>();
+        double[] grad = new double[chain.b.length];
+        solver.setListener(e -> {
+            chain.gradient(e.getPoint(), grad);
+            gradients.add(maxNorm(grad));
+        });
+        double[] res = solver.solve(new double[chain.b.length]);
+        
+        assertTrue("iterations " + gradients.size(), gradients.size() <= 8);
+        chain.gradient(res, grad);
+        assertTrue(maxNorm(grad) < 1e-10);
+        //Once close, every step at least squares the error up to a constant
+        for (int k = 1; k < gradients.size(); k++) {
+            if (gradients.get(k - 1) < 1e-2 && gradients.get(k) > 1e-13) {
+                assertTrue(gradients.toString(), gradients.get(k) <= 10 * gradients.get(k - 1) * gradients.get(k - 1));
+            }
+        }
+    }
+    
+    @Test
+    public void indefiniteHessianFallsBackToSteepestDescent() {
+        //x_0^2 / 2 + (x_1^2 - 1)^2, concave in x_1 around the local maximum at 0
+        FunctionND f = new FunctionND() {
+            @Override
+            public double apply(double[] x) {
+                return x[0] * x[0] / 2 + (x[1] * x[1] - 1) * (x[1] * x[1] - 1);
+            }
+            
+            @Override
+            public void gradient(double[] x, double[] out) {
+                out[0] = x[0];
+                out[1] = 4 * x[1] * (x[1] * x[1] - 1);
+            }
+        };
+        TridiagonalNewtonSolver solver = new TridiagonalNewtonSolver();
+        solver.setFunction(f);
+        solver.setHessian((x, lower, diagonal, upper) -> {
+            diagonal[0] = 1;
+            diagonal[1] = 12 * x[1] * x[1] - 4;
+            lower[1] = 0;
+            upper[0] = 0;
+        });
+        //The Newton step descends because of x_0, but in x_1 it jumps across the maximum into the other well
+        double[] res = solver.solve(new double[]{10, 0.1});
+        assertEquals(0, res[0], 1e-3);
+        //Downhill from 0.1 is the minimum at 1
+        assertEquals(1, res[1], 1e-3);
+    }
+    
+    private static double maxNorm(double[] a) {
+        double res = 0;
+        for (double v : a) {
+            res = Math.max(res, Math.abs(v));
+        }
+        return res;
+    }
+}